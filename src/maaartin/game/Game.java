@@ -45,6 +45,23 @@ import com.google.common.collect.ImmutableList;
 	/** Return true if the game has been finished. */
 	boolean isFinished();
 
+	/**
+	 * Return a 64-bit hash of the state, so that equal games get equal hashes.
+	 *
+	 * <p>It should be cheap (e.g., maintained incrementally) and of good quality,
+	 * so it can be used as a key in transposition tables and similar. It also serves as the basis for {@link #hashCode()}.
+	 */
+	long hash64();
+
+	/**
+	 * Return a 64-bit hash equal for all states equivalent under the symmetries of the game (if any).
+	 *
+	 * <p>Meant for caches storing symmetrical states only once. It may be much more expensive than {@link #hash64()}.
+	 */
+	default long canonicalHash64() {
+		return hash64();
+	}
+
 	/** Return a map of all directly reachable states to the corresponding moves. */
 	ImmutableBiMap<G, String> children();
 
@@ -56,6 +73,45 @@ import com.google.common.collect.ImmutableList;
 	 */
 	G play(String move);
 
+	/**
+	 * Return a game state resulting from applying a move represented by the argument code.
+	 * The set of all possible move codes may be obtained via {@link #moves(int[])}.
+	 *
+	 * <p>This is the primitive counterpart of {@link #play(String)}, avoiding any string processing.
+	 *
+	 * @throws IllegalArgumentException if the game has already finished or the move is illegal.
+	 */
+	G play(int move);
+
+	/**
+	 * Store the codes of all possible moves in the argument and return their number.
+	 *
+	 * @param result an array of length at least {@link #nMoveCodes()}
+	 */
+	int moves(int[] result);
+
+	/** Return an upper bound on all move codes, i.e., every move code lies between 0 (incl.) and the result (excl.). */
+	int nMoveCodes();
+
+	/** Convert a move code into the string representation as used by {@link #play(String)}. */
+	String moveToString(int move);
+
+	/**
+	 * Convert a move string into the move code as used by {@link #play(int)}.
+	 *
+	 * @throws IllegalArgumentException if the move is malformed.
+	 */
+	int parseMove(String move);
+
+	/**
+	 * Return a new mutable board initialized to this state.
+	 *
+	 * <p>Games lacking a specialized implementation get a {@link GameHistoryBoard}.
+	 */
+	@SuppressWarnings("unchecked") default GameBoard<G> newBoard() {
+		return new GameHistoryBoard<G>().load((G) this);
+	}
+
 	/**
 	 * Return a game state resulting from applying a randomly chosen move.
 	 *
@@ -4,6 +4,58 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Getter @Setter public final class GameAIParameters {
+	/** The maximum number of playouts per move. */
 	private int budget = 1000;
+
+	/** The maximum time per move, or zero for no limit. The actors return the best move found so far when it's over. */
+	private long millisPerMove;
+
+	/** The maximum number of nodes the search may create before stopping, or zero for no limit. Unlike {@link #maxNodes}, it's no capacity. */
+	private int nodeLimit;
+
 	private boolean isExperimental;
+
+	/**
+	 * Whether to keep the search tree between moves and continue from the subtree of the current game.
+	 * Only {@link maaartin.game.ai.GameUctActor} supports it.
+	 */
+	private boolean isReusingTree = true;
+
+	/**
+	 * Whether to continue searching in the background during the opponent's turn, if supported.
+	 * It's pointless without {@link #isReusingTree}. See also {@link GameActor#stopPondering()}.
+	 */
+	private boolean isPondering;
+
+	/** Whether the tree search should pool the statistics of positions reachable via different move orders, if supported. */
+	private boolean isUsingTranspositions;
+
+	/** Whether to collect and print instrumentation statistics of each search, which costs some time. */
+	private boolean isCollectingStats;
+
+	/** How the Monte Carlo actors play their playouts. */
+	private GameRolloutPolicy rolloutPolicy = GameRolloutPolicy.UNIFORM;
+
+	/** The maximum depth of depth-first searches like {@link maaartin.game.ai.GameAlphaBetaActor}, in plies. */
+	private int maxSearchDepth = 8;
+
+	/** The weight of the exploration term in the UCB formula, see {@link maaartin.game.ai.GameUctActor}. */
+	private double explorationWeight = 1.0;
+
+	/**
+	 * The number of visits of a node, at which its own statistics and its all-moves-as-first statistics weigh the same
+	 * in the RAVE of {@link maaartin.game.ai.GameUctActor}. Zero disables RAVE.
+	 * It pays off with a fixed {@link #budget}, but not with a fixed {@link #millisPerMove}, as the iterations get slower.
+	 * So it gets ignored when the latter is set.
+	 */
+	private int raveEquivalence = 100;
+
+	/** Replaces the {@link #explorationWeight} when RAVE is used, as the all-moves-as-first statistics already spread the visits. */
+	private double raveExplorationWeight = 0.1;
+
+	/** The number of threads to search with. Actors not supporting parallel search ignore it. */
+	private int nThreads = 1;
+
+	/** The maximum number of nodes of the search tree. */
+	private int maxNodes = 1 << 20;
 }
@@ -5,5 +5,21 @@ public interface GameActor {
 	/** Return the "best" move for the given game state. */
 	String selectMove(Game<?> game);
 
+	/**
+	 * Return the "best" move for the given game state as a move code (see {@link Game#play(int)}).
+	 *
+	 * <p>Actors working with move codes internally should override it in order to avoid any string processing.
+	 */
+	default int selectMoveCode(Game<?> game) {
+		return game.parseMove(selectMove(game));
+	}
+
 	GameAIParameters parameters();
+
+	/**
+	 * Stop any background search (see {@link GameAIParameters#isPondering()}) and wait for it to finish.
+	 * The actor stays usable. Meant for when the game gets abandoned or the actor replaced.
+	 */
+	default void stopPondering() {
+	}
 }
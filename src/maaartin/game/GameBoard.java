@@ -0,0 +1,78 @@
+package maaartin.game;
+
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A mutable counterpart of {@link Game}, allowing to make and unmake moves without creating any objects.
+ *
+ * <p>Meant for rollouts and searches, where nearly all the immutable intermediate states would become garbage immediately.
+ * Moves are given by their codes as in {@link Game#play(int)}.
+ */
+@NotThreadSafe public interface GameBoard<G extends Game<G>> {
+	/** Replace the state of this board by the given game and clear the history. */
+	GameBoard<G> load(G game);
+
+	/** Return an immutable game equivalent to the current state. */
+	G toGame();
+
+	/** See {@link Game#turn()}. */
+	int turn();
+
+	/** See {@link Game#playerOnTurn()}. */
+	GamePlayer playerOnTurn();
+
+	/** See {@link Game#isFinished()}. */
+	boolean isFinished();
+
+	/** See {@link Game#hash64()}. */
+	long hash64();
+
+	/** See {@link Game#score()}. */
+	double score();
+
+	/** See {@link Game#moves(int[])}. */
+	int moves(int[] result);
+
+	/**
+	 * Return the code of a uniformly chosen possible move.
+	 *
+	 * @throws IllegalStateException if the game has already finished.
+	 */
+	int randomMove(Random random);
+
+	/**
+	 * Make random moves until the game finishes and return its {@link #score()}.
+	 * The moves get remembered as usual, so they can be undone.
+	 */
+	default double playout(Random random) {
+		while (!isFinished()) make(randomMove(random));
+		return score();
+	}
+
+	/** Like {@link #playout(Random)}, but pass the code of every move to the consumer just before making it. */
+	default double playout(Random random, IntConsumer moveConsumer) {
+		while (!isFinished()) {
+			final int move = randomMove(random);
+			moveConsumer.accept(move);
+			make(move);
+		}
+		return score();
+	}
+
+	/**
+	 * Apply the move given by its code and remember it, so it can be undone.
+	 *
+	 * @throws IllegalArgumentException if the game has already finished or the move is illegal.
+	 */
+	void make(int move);
+
+	/**
+	 * Undo the last move made via {@link #make(int)}.
+	 *
+	 * @throws IllegalStateException if there's nothing to be undone since the last {@link #load(Game)}.
+	 */
+	void unmake();
+}
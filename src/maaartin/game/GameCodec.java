@@ -0,0 +1,45 @@
+package maaartin.game;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A conversion of game states to a compact binary form and back, plus a parser for {@link Game#asString()}.
+ *
+ * <p>The binary form has a fixed length, so that many states can be stored in a flat file or buffer
+ * (e.g., for opening books or training data) and accessed by index.
+ */
+@Immutable public interface GameCodec<G extends Game<G>> {
+	/** Return the number of bytes needed by {@link #encode(Game, ByteBuffer)}, which is the same for all states. */
+	int encodedLength();
+
+	/** Write the binary form of the given state into the buffer, advancing its position by {@link #encodedLength()}. */
+	void encode(G game, ByteBuffer buffer);
+
+	/**
+	 * The inverse function to {@link #encode(Game, ByteBuffer)}, advancing the position by {@link #encodedLength()}.
+	 *
+	 * @throws IllegalArgumentException if the data don't represent a valid state.
+	 */
+	G decode(ByteBuffer buffer);
+
+	/**
+	 * The inverse function to {@link Game#asString()}.
+	 *
+	 * @throws IllegalArgumentException if the string is malformed or doesn't represent a valid state.
+	 */
+	G parse(String string);
+
+	/** Return the binary form of the given state as a new array. */
+	default byte[] encode(G game) {
+		final ByteBuffer result = ByteBuffer.allocate(encodedLength());
+		encode(game, result);
+		return result.array();
+	}
+
+	/** The inverse function to {@link #encode(Game)}. */
+	default G decode(byte[] bytes) {
+		return decode(ByteBuffer.wrap(bytes));
+	}
+}
@@ -0,0 +1,76 @@
+package maaartin.game;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A trivial implementation of {@link GameBoard} simply keeping a stack of immutable games.
+ *
+ * <p>Used for games lacking a specialized board, so it creates a new game for every move.
+ */
+@NotThreadSafe public final class GameHistoryBoard<G extends Game<G>> implements GameBoard<G> {
+	@Override public GameHistoryBoard<G> load(G game) {
+		checkNotNull(game);
+		history.clear();
+		history.add(game);
+		this.game = game;
+		return this;
+	}
+
+	@Override public G toGame() {
+		return game;
+	}
+
+	@Override public int turn() {
+		return game.turn();
+	}
+
+	@Override public GamePlayer playerOnTurn() {
+		return game.playerOnTurn();
+	}
+
+	@Override public boolean isFinished() {
+		return game.isFinished();
+	}
+
+	@Override public long hash64() {
+		return game.hash64();
+	}
+
+	@Override public double score() {
+		return game.score();
+	}
+
+	@Override public int moves(int[] result) {
+		return game.moves(result);
+	}
+
+	@Override public int randomMove(Random random) {
+		if (moves==null) moves = new int[game.nMoveCodes()];
+		final int length = game.moves(moves);
+		checkState(length>0);
+		return moves[random.nextInt(length)];
+	}
+
+	@Override public void make(int move) {
+		game = game.play(move);
+		history.add(game);
+	}
+
+	@Override public void unmake() {
+		checkState(history.size() > 1);
+		history.remove(history.size() - 1);
+		game = history.get(history.size() - 1);
+	}
+
+	private final List<G> history = Lists.newArrayList();
+	private G game;
+	private int[] moves;
+}
@@ -0,0 +1,139 @@
+package maaartin.game;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A fast random number generator for playouts and searches, based on xoroshiro128++.
+ *
+ * <p>It extends {@link Random}, so it can be passed to {@link Game#play(Random)} and similar,
+ * but it uses neither atomics nor synchronization. So it must not be shared between threads;
+ * use {@link #split()} to get an independent instance for each thread instead.
+ */
+@NotThreadSafe public final class GameRandom extends Random {
+	/** Create an instance seeded differently from all other instances (with high probability). */
+	public GameRandom() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	public GameRandom(long seed) {
+		super(seed);
+	}
+
+	/** Return a new instance whose sequence is independent of this one. This advances the state of this instance. */
+	public GameRandom split() {
+		return new GameRandom(nextLong());
+	}
+
+	@Override public void setSeed(long seed) {
+		super.setSeed(seed); // Needed to reset the cached gaussian.
+		s0 = mix64(seed + GOLDEN_GAMMA);
+		s1 = mix64(seed + 2*GOLDEN_GAMMA);
+		if ((s0 | s1) == 0) s1 = GOLDEN_GAMMA;
+	}
+
+	@Override public long nextLong() {
+		final long s0 = this.s0;
+		long s1 = this.s1;
+		final long result = Long.rotateLeft(s0 + s1, 17) + s0;
+		s1 ^= s0;
+		this.s0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+		this.s1 = Long.rotateLeft(s1, 28);
+		return result;
+	}
+
+	@Override protected int next(int bits) {
+		return (int) (nextLong() >>> (Long.SIZE - bits));
+	}
+
+	@Override public int nextInt() {
+		return (int) (nextLong() >>> Integer.SIZE);
+	}
+
+	/** Return a uniformly distributed value between 0 (incl.) and {@code bound} (excl.), using a multiplication instead of a division. */
+	@Override public int nextInt(int bound) {
+		checkArgument(bound>0);
+		long product = (nextLong() >>> Integer.SIZE) * bound;
+		if (Integer.compareUnsigned((int) product, bound) < 0) {
+			// Rare rejection needed for exactness, see "Fast Random Integer Generation in an Interval" by D. Lemire.
+			final int threshold = Integer.remainderUnsigned(-bound, bound);
+			while (Integer.compareUnsigned((int) product, threshold) < 0) product = (nextLong() >>> Integer.SIZE) * bound;
+		}
+		return (int) (product >>> Integer.SIZE);
+	}
+
+	@Override public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	@Override public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Return the index of a uniformly chosen one bit of the given mask.
+	 *
+	 * @throws IllegalArgumentException if the mask is zero.
+	 */
+	public int nextSetBit(long mask) {
+		return nthSetBit(mask, nextInt(Long.bitCount(mask)));
+	}
+
+	/**
+	 * Return the index of the n-th (zero-based) one bit of the given mask.
+	 * The mask must contain more than {@code n} one bits.
+	 *
+	 * <p>Works in a fixed number of steps by halving the search range thrice and finishing with a table lookup.
+	 */
+	public static int nthSetBit(long mask, int n) {
+		int shift = 0;
+		int count = Long.bitCount(mask & 0xFFFF_FFFFL);
+		if (n >= count) {
+			n -= count;
+			shift = 32;
+		}
+		count = Long.bitCount((mask >>> shift) & 0xFFFF);
+		if (n >= count) {
+			n -= count;
+			shift += 16;
+		}
+		count = Long.bitCount((mask >>> shift) & 0xFF);
+		if (n >= count) {
+			n -= count;
+			shift += 8;
+		}
+		return shift + SELECT_TABLE[Byte.SIZE * ((int) (mask >>> shift) & 0xFF) + n];
+	}
+
+	/** The finalizer of SplittableRandom, spreading the seed over the whole state. */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static byte[] createSelectTable() {
+		final byte[] result = new byte[Byte.SIZE << Byte.SIZE];
+		for (int mask=0; mask<1<<Byte.SIZE; ++mask) {
+			int n = 0;
+			for (int i=0; i<Byte.SIZE; ++i) {
+				if ((mask & (1<<i)) != 0) result[Byte.SIZE*mask + n++] = (byte) i;
+			}
+		}
+		return result;
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** Indexed by {@code 8*mask + n}, contains the index of the n-th one bit of the 8-bit mask. */
+	private static final byte[] SELECT_TABLE = createSelectTable();
+
+	private long s0;
+	private long s1;
+}
@@ -0,0 +1,54 @@
+package maaartin.game;
+
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Chooses the moves of the playouts (aka rollouts) of the Monte Carlo actors, see {@link GameAIParameters#rolloutPolicy()}.
+ *
+ * <p>A policy smarter than {@link #UNIFORM} makes every playout more informative, but also slower,
+ * so it should only use knowledge which is really cheap, e.g., small precomputed tables.
+ */
+public interface GameRolloutPolicy {
+	/** Return the code of the move to be made on the board, whose game must not be finished. */
+	int nextMove(GameBoard<?> board, Random random);
+
+	/**
+	 * Make moves until the game on the board finishes and return its {@link GameBoard#score()}.
+	 * The moves get remembered as usual, so they can be undone.
+	 *
+	 * <p>Implementations may override it for speed, but they must make the moves chosen by {@link #nextMove(GameBoard, Random)}.
+	 */
+	default double playout(GameBoard<?> board, Random random) {
+		while (!board.isFinished()) board.make(nextMove(board, random));
+		return board.score();
+	}
+
+	/**
+	 * Like {@link #playout(GameBoard, Random)}, but pass the code of every move to the consumer just before making it,
+	 * so that the player on turn can still be seen on the board. Implementations overriding the former should override this, too.
+	 */
+	default double playout(GameBoard<?> board, Random random, IntConsumer moveConsumer) {
+		while (!board.isFinished()) {
+			final int move = nextMove(board, random);
+			moveConsumer.accept(move);
+			board.make(move);
+		}
+		return board.score();
+	}
+
+	/** The fastest policy, choosing all moves uniformly at random, see {@link GameBoard#randomMove(Random)}. */
+	GameRolloutPolicy UNIFORM = new GameRolloutPolicy() {
+		@Override public int nextMove(GameBoard<?> board, Random random) {
+			return board.randomMove(random);
+		}
+
+		@Override public double playout(GameBoard<?> board, Random random) {
+			return board.playout(random);
+		}
+
+		@Override public double playout(GameBoard<?> board, Random random, IntConsumer moveConsumer) {
+			return board.playout(random, moveConsumer);
+		}
+	};
+}
@@ -0,0 +1,36 @@
+package maaartin.game;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class _GameRandomTest extends TestCase {
+	public void testNthSetBit() {
+		final Random random = new Random(0);
+		for (int i=0; i<10000; ++i) {
+			final long mask = random.nextLong() & random.nextLong();
+			long m = mask;
+			for (int n=0; m!=0; ++n, m&=m-1) assertEquals(Long.numberOfTrailingZeros(m), GameRandom.nthSetBit(mask, n));
+		}
+	}
+
+	public void testNextInt() {
+		final GameRandom random = new GameRandom(0);
+		for (final int bound : new int[] {1, 2, 3, 7, 81, 1<<30, Integer.MAX_VALUE}) {
+			for (int i=0; i<1000; ++i) {
+				final int x = random.nextInt(bound);
+				assertTrue(0<=x && x<bound);
+			}
+		}
+		final int[] counts = new int[7];
+		for (int i=0; i<70000; ++i) ++counts[random.nextInt(counts.length)];
+		for (final int c : counts) assertTrue(9500<c && c<10500);
+	}
+
+	public void testSplit() {
+		final GameRandom random = new GameRandom(0);
+		final GameRandom other = random.split();
+		assertFalse(random.nextLong() == other.nextLong());
+		assertEquals(new GameRandom(42).nextLong(), new GameRandom(42).nextLong());
+	}
+}
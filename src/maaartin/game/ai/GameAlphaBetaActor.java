@@ -0,0 +1,305 @@
+package maaartin.game.ai;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import lombok.Getter;
+
+import com.google.common.collect.Lists;
+
+import maaartin.game.Game;
+import maaartin.game.GameAIParameters;
+import maaartin.game.GameActor;
+import maaartin.game.GameBoard;
+import maaartin.game.GameRandom;
+
+/**
+ * A depth-first searcher using iterative deepening and the principal variation search (a refinement of alpha-beta)
+ * in the negamax formulation, complementing the Monte Carlo actors.
+ *
+ * <p>Each iteration searches one ply deeper, until {@link GameAIParameters#maxSearchDepth()} or the {@link GameSearchLimit}
+ * gets reached or the game gets solved. The shallow iterations are cheap and pay off via the move ordering, which tries first
+ * the move stored in the {@link GameAlphaBetaTable}, then the killer moves (which recently caused a cutoff at the same ply),
+ * and then the remaining moves by the history heuristic. The table is kept between the moves.
+ *
+ * <p>With more than one of {@link GameAIParameters#nThreads()}, the search uses Lazy SMP: Helper threads run the very same
+ * iterative deepening, every other one starting a ply deeper, and they communicate only through the shared table.
+ * They fill it with results the main thread can use, and their staggered depths make them diverge enough to be useful.
+ * The search ends when the main thread ends. Then the result of the deepest complete iteration of any thread gets used.
+ * So the search is deterministic only with a single thread, as the timing of the threads influences the table content.
+ *
+ * <p>Values are integral and from the perspective of the player on turn. The evaluations are scaled by {@value #EVALUATION_SCALE},
+ * the scores of finished games by {@value #WIN} and reduced by their distance, so that a faster win gets preferred.
+ * The {@link GameAIParameters#budget()} gets ignored. The visited nodes get reported as playouts in {@link GameSearchMetrics}.
+ */
+@NotThreadSafe public final class GameAlphaBetaActor implements GameActor {
+	public GameAlphaBetaActor(GameEvaluator evaluator) {
+		this(new GameAIParameters(), evaluator);
+	}
+
+	public GameAlphaBetaActor(GameAIParameters parameters, GameEvaluator evaluator) {
+		this.parameters = checkNotNull(parameters);
+		this.evaluator = checkNotNull(evaluator);
+	}
+
+	/** The state of the search done by a single thread. It's kept between the moves, so it gets reused when possible. */
+	private final class Searcher implements Callable<Void> {
+		Searcher(int index) {
+			this.index = index;
+		}
+
+		/** Make the buffers fit the game and the parameters and reset the state. */
+		void prepare(Game<?> game, GameSearchLimit limit) {
+			board = game.newBoard();
+			nMoveCodes = game.nMoveCodes();
+			this.limit = limit;
+			nNodes = 0;
+			isAborted = false;
+			rootMove = NO_MOVE;
+			completedDepth = 0;
+			final int maxPly = parameters.maxSearchDepth() + 1;
+			if (moveBuffers.length != maxPly || moveBuffers[0].length != nMoveCodes) {
+				moveBuffers = new int[maxPly][nMoveCodes];
+				orderBuffers = new int[maxPly][nMoveCodes];
+				killers = new int[2 * maxPly];
+				history = new int[2 * nMoveCodes];
+			}
+			Arrays.fill(killers, NO_MOVE);
+			// Let the old history fade, as it's mostly about different positions.
+			for (int i=0; i<history.length; ++i) history[i] >>= 2;
+		}
+
+		/** Run the iterative deepening, every other helper starting one ply deeper. When done, the main searcher stops the helpers. */
+		@Override public Void call() {
+			for (int depth=1 + (index & 1); depth<=parameters.maxSearchDepth(); ++depth) {
+				final int value = search(depth, 0, -INFINITY, +INFINITY);
+				if (isAborted) break;
+				completedDepth = depth;
+				if (Math.abs(value) > MAX_EVALUATION) break; // The game is solved.
+			}
+			if (index==0) stopRequest.set(true);
+			return null;
+		}
+
+		/**
+		 * Return the value of the game on the board for the player on turn, searching the given number of plies.
+		 * After an abort, the result is meaningless and the board is in an undefined state.
+		 */
+		private int search(int depth, int ply, int alpha, int beta) {
+			++nNodes;
+			if (limit.isReached((int) Math.min(nNodes, Integer.MAX_VALUE))) {
+				isAborted = true;
+				return 0;
+			}
+			final int sign = board.playerOnTurn().ordinal() == 0 ? +1 : -1;
+			if (board.isFinished()) {
+				final int value = (int) Math.round(WIN * sign * board.score());
+				return value > 0 ? value - ply : value < 0 ? value + ply : 0;
+			}
+			if (depth==0) {
+				final long value = Math.round(EVALUATION_SCALE * sign * evaluator.evaluate(board));
+				return (int) Math.max(-MAX_EVALUATION, Math.min(value, MAX_EVALUATION));
+			}
+
+			final long hash = board.hash64();
+			final long entry = table.probe(hash);
+			final int tableMove = entry==GameAlphaBetaTable.NONE ? NO_MOVE : GameAlphaBetaTable.move(entry);
+			// The root needs to be searched, as its best move is the result.
+			if (ply>0 && entry!=GameAlphaBetaTable.NONE && GameAlphaBetaTable.depth(entry) >= depth) {
+				final int value = fromTable(GameAlphaBetaTable.value(entry), ply);
+				final int bound = GameAlphaBetaTable.bound(entry);
+				if (bound==GameAlphaBetaTable.EXACT) return value;
+				if (bound==GameAlphaBetaTable.LOWER && value>=beta) return value;
+				if (bound==GameAlphaBetaTable.UPPER && value<=alpha) return value;
+			}
+
+			final int[] moves = moveBuffers[ply];
+			final int[] order = orderBuffers[ply];
+			final int n = board.moves(moves);
+			final int historyOffset = sign > 0 ? 0 : nMoveCodes;
+			for (int i=0; i<n; ++i) {
+				final int move = moves[i];
+				if (move==tableMove) {
+					order[i] = TABLE_MOVE_ORDER;
+				} else if (move==killers[2*ply] || move==killers[2*ply + 1]) {
+					order[i] = KILLER_ORDER;
+				} else {
+					order[i] = history[historyOffset + move];
+				}
+			}
+
+			final int originalAlpha = alpha;
+			int best = -INFINITY;
+			int bestMove = NO_MOVE;
+			for (int i=0; i<n; ++i) {
+				final int move = selectNext(moves, order, i, n);
+				board.make(move);
+				int value;
+				if (i==0) {
+					value = -search(depth-1, ply+1, -beta, -alpha);
+				} else {
+					// Prove with a null window that the move is worse, which is usually cheaper. Otherwise, search it again.
+					value = -search(depth-1, ply+1, -alpha-1, -alpha);
+					if (value>alpha && value<beta && !isAborted) value = -search(depth-1, ply+1, -beta, -alpha);
+				}
+				board.unmake();
+				if (isAborted) return 0;
+				if (value > best) {
+					best = value;
+					bestMove = move;
+					if (ply==0) rootMove = move;
+				}
+				if (value > alpha) alpha = value;
+				if (alpha >= beta) {
+					recordCutoff(move, depth, ply, historyOffset);
+					break;
+				}
+			}
+
+			final int bound = best<=originalAlpha ? GameAlphaBetaTable.UPPER : best>=beta ? GameAlphaBetaTable.LOWER : GameAlphaBetaTable.EXACT;
+			table.store(hash, depth, bound, toTable(best, ply), bestMove);
+			return best;
+		}
+
+		private void recordCutoff(int move, int depth, int ply, int historyOffset) {
+			if (move != killers[2*ply]) {
+				killers[2*ply + 1] = killers[2*ply];
+				killers[2*ply] = move;
+			}
+			history[historyOffset + move] += depth * depth;
+			if (history[historyOffset + move] > MAX_HISTORY) {
+				for (int i=0; i<history.length; ++i) history[i] >>= 1;
+			}
+		}
+
+		/** Zero for the main searcher, positive for the helpers. */
+		private final int index;
+
+		private GameBoard<?> board;
+		private int nMoveCodes;
+		private GameSearchLimit limit;
+		private long nNodes;
+		private boolean isAborted;
+		/** The best move found at the root so far. */
+		private int rootMove;
+		private int completedDepth;
+
+		/** The moves and their ordering keys for each ply. */
+		private int[][] moveBuffers = new int[0][];
+		private int[][] orderBuffers;
+		/** The two most recent moves causing a cutoff at a ply, the ply {@code p} uses the indexes {@code 2*p} and {@code 2*p + 1}. */
+		private int[] killers;
+		/** Indexed by {@code playerOrdinal * nMoveCodes + move}, grows with the number and depth of the cutoffs caused. */
+		private int[] history;
+	}
+
+	@Override public String selectMove(Game<?> game) {
+		return game.moveToString(selectMoveCode(game));
+	}
+
+	@Override public int selectMoveCode(Game<?> game) {
+		checkArgument(!game.isFinished());
+		checkArgument(game.nMoveCodes() < 0xFFFF, "Too many move codes for the table");
+		checkArgument(parameters.maxSearchDepth() > 0);
+		final long start = System.nanoTime();
+		final int nThreads = Math.max(1, parameters.nThreads());
+		while (searchers.size() < nThreads) searchers.add(new Searcher(searchers.size()));
+		if (table==null || table.capacity() < parameters.maxNodes()) table = new GameAlphaBetaTable(parameters.maxNodes());
+		table.nextGeneration();
+		stopRequest.set(false);
+		final GameSearchLimit limit = GameSearchLimit.start(parameters, stopRequest);
+		final List<Searcher> activeSearchers = searchers.subList(0, nThreads);
+		for (final Searcher s : activeSearchers) s.prepare(game, limit.copy());
+
+		if (nThreads==1) {
+			activeSearchers.get(0).call();
+		} else {
+			try {
+				for (final Future<Void> future : pool(nThreads).invokeAll(activeSearchers)) future.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (final ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		// The best move of an interrupted iteration is fine, as it had to beat the best move of the previous iteration.
+		Searcher best = activeSearchers.get(0);
+		long nNodes = 0;
+		for (final Searcher s : activeSearchers) {
+			nNodes += s.nNodes;
+			if (s.rootMove!=NO_MOVE && s.completedDepth > best.completedDepth) best = s;
+		}
+		final int result = best.rootMove!=NO_MOVE ? best.rootMove : GameRandomActor.randomMove(game, random);
+		GameSearchMonitor.report(new GameSearchMetrics(
+				getClass().getSimpleName(), game.turn(), nNodes, table.size(), best.completedDepth, Double.NaN, System.nanoTime() - start));
+		return result;
+	}
+
+	/** Move the best ordered of the moves starting at {@code i} to the position {@code i} and return it. */
+	private static int selectNext(int[] moves, int[] order, int i, int n) {
+		int best = i;
+		for (int j=i+1; j<n; ++j) {
+			if (order[j] > order[best]) best = j;
+		}
+		final int result = moves[best];
+		moves[best] = moves[i];
+		order[best] = order[i];
+		moves[i] = result;
+		return result;
+	}
+
+	/** Convert the value of a decided game from relative to the root to relative to the current node. */
+	private static int toTable(int value, int ply) {
+		return value > MAX_EVALUATION ? value + ply : value < -MAX_EVALUATION ? value - ply : value;
+	}
+
+	private static int fromTable(int value, int ply) {
+		return value > MAX_EVALUATION ? value - ply : value < -MAX_EVALUATION ? value + ply : value;
+	}
+
+	/** Return the pool for the searchers, creating it if needed. */
+	private ForkJoinPool pool(int nThreads) {
+		if (pool==null || pool.getParallelism() != nThreads) {
+			if (pool!=null) pool.shutdown();
+			pool = new ForkJoinPool(nThreads);
+		}
+		return pool;
+	}
+
+	/** The value of a move code meaning no move. */
+	public static final int NO_MOVE = -1;
+
+	private static final int EVALUATION_SCALE = 10_000;
+	private static final int MAX_EVALUATION = EVALUATION_SCALE - 1;
+	private static final int WIN = 1_000_000;
+	private static final int INFINITY = 2 * WIN;
+
+	/** The ordering keys of the moves tried first, the other moves get ordered by their {@link Searcher#history}. */
+	private static final int TABLE_MOVE_ORDER = Integer.MAX_VALUE;
+	private static final int KILLER_ORDER = TABLE_MOVE_ORDER - 1;
+	private static final int MAX_HISTORY = 1 << 24;
+
+	@Getter private final GameAIParameters parameters;
+	private final GameEvaluator evaluator;
+	private final GameRandom random = new GameRandom();
+	private ForkJoinPool pool;
+
+	/** Shared by all searchers, see {@link GameAlphaBetaTable} for how it copes with concurrent access. */
+	private GameAlphaBetaTable table;
+	/** Set by the main searcher when it finishes, so that the helpers finish, too. */
+	private final AtomicBoolean stopRequest = new AtomicBoolean();
+	/** The first {@link GameAIParameters#nThreads()} of them are used, the first one is the main searcher. */
+	private final List<Searcher> searchers = Lists.newArrayList();
+}
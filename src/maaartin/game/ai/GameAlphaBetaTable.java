@@ -0,0 +1,141 @@
+package maaartin.game.ai;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import maaartin.game.Game;
+
+/**
+ * A fixed-size hash table storing the results of {@link GameAlphaBetaActor} keyed by {@link Game#hash64()}.
+ *
+ * <p>An entry consists of the full hash and a single long packing the value, its bound type, the best move,
+ * the searched depth and the generation (see {@link #nextGeneration()}). The entries come in buckets of two:
+ * The first entry is depth-preferred, i.e., it only gets replaced by a deeper search or when it's stale,
+ * the second one is always replaced, so that recent results are available, too.
+ *
+ * <p>The table may be used by multiple threads concurrently without any locking, as needed for the Lazy SMP in {@link GameAlphaBetaActor}.
+ * Instead of the hash, the XOR of the hash and the data gets stored. An entry torn by concurrent writes fails
+ * the verification in {@link #probe(long)} and gets ignored, just like a missing one. The only exception is
+ * {@link #nextGeneration()}, which must not be called concurrently with other methods.
+ */
+@ThreadSafe public final class GameAlphaBetaTable {
+	/** Create a table with at least the given number of entries (rounded up to a power of two). */
+	public GameAlphaBetaTable(int minCapacity) {
+		checkArgument(minCapacity > 0);
+		final int capacity = Math.max(BUCKET_SIZE, Integer.highestOneBit(minCapacity - 1) << 1);
+		checkArgument(capacity > 0, "Too big");
+		mask = capacity - 1;
+		keys = new long[capacity];
+		entries = new long[capacity];
+	}
+
+	/** Start a new search, making all existing entries candidates for replacement. Their data stay available. */
+	public void nextGeneration() {
+		generation = (generation + 1) & GENERATION_MASK;
+	}
+
+	/** Return the packed data stored for the given position, or {@link #NONE} if it's missing. */
+	public long probe(long hash) {
+		final int bucket = bucket(hash);
+		for (int i=bucket; i<bucket+BUCKET_SIZE; ++i) {
+			final long entry = entries[i];
+			if (entry != NONE && (keys[i] ^ entry) == hash) return entry;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Store the result of a search of the given position.
+	 *
+	 * @param bound one of {@link #EXACT}, {@link #LOWER} and {@link #UPPER}
+	 * @param move the code of the best move, or {@link GameAlphaBetaActor#NO_MOVE}
+	 */
+	public void store(long hash, int depth, int bound, int value, int move) {
+		final int bucket = bucket(hash);
+		final long old = entries[bucket];
+		final boolean isPreferred = old==NONE || (keys[bucket] ^ old) == hash || generation(old) != generation || depth >= depth(old);
+		final int i = isPreferred ? bucket : bucket + 1;
+		final long entry = (value & 0xFFFF_FFFFL)
+				| (long) (move+1) << MOVE_SHIFT
+				| (long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT
+				| (long) bound << BOUND_SHIFT
+				| (long) generation << GENERATION_SHIFT;
+		if (entries[i] == NONE) size.incrementAndGet();
+		entries[i] = entry;
+		keys[i] = hash ^ entry;
+	}
+
+	/** Return the number of entries. */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/** Return the number of non-empty entries. Concurrent stores into the same empty entry may get counted twice. */
+	public int size() {
+		return Math.min(size.get(), capacity());
+	}
+
+	/** Return the value of the given non-empty entry. */
+	public static int value(long entry) {
+		return (int) entry;
+	}
+
+	/** Return the best move of the given non-empty entry, possibly {@link GameAlphaBetaActor#NO_MOVE}. */
+	public static int move(long entry) {
+		return (int) (entry >>> MOVE_SHIFT & MOVE_MASK) - 1;
+	}
+
+	/** Return the depth searched for the given non-empty entry. */
+	public static int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT & DEPTH_MASK);
+	}
+
+	/** Return the bound type of the given non-empty entry. */
+	public static int bound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT & BOUND_MASK);
+	}
+
+	private static int generation(long entry) {
+		return (int) (entry >>> GENERATION_SHIFT);
+	}
+
+	/** Return the index of the first entry of the bucket for the given hash, using its upper bits. */
+	private int bucket(long hash) {
+		return (int) (hash >>> 32) & mask & -BUCKET_SIZE;
+	}
+
+	/** The value of an empty entry. A non-empty entry is never zero, as its bound is. */
+	public static final long NONE = 0;
+
+	/** The value is exact. */
+	public static final int EXACT = 1;
+	/** The value is a lower bound, as the search failed high. */
+	public static final int LOWER = 2;
+	/** The value is an upper bound, as the search failed low. */
+	public static final int UPPER = 3;
+
+	private static final int BUCKET_SIZE = 2;
+
+	/** The layout of an entry: 32 bits value, 16 bits move+1, 8 bits depth, 2 bits bound, 6 bits generation. */
+	private static final int MOVE_SHIFT = 32;
+	private static final int MOVE_MASK = 0xFFFF;
+	private static final int DEPTH_SHIFT = 48;
+	private static final int DEPTH_MASK = 0xFF;
+	private static final int BOUND_SHIFT = 56;
+	private static final int BOUND_MASK = 3;
+	private static final int GENERATION_SHIFT = 58;
+	private static final int GENERATION_MASK = 0x3F;
+
+	private final int mask;
+	private int generation;
+	/** The number of non-empty entries, counted in {@link #store(long, int, int, int, int)}, as entries never get cleared. */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/** The hash of the position XORed with its entry. The arrays are indexed by entry. */
+	private final long[] keys;
+	/** The packed data, see the layout above. */
+	private final long[] entries;
+}
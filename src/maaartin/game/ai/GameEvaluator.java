@@ -0,0 +1,16 @@
+package maaartin.game.ai;
+
+import maaartin.game.GameBoard;
+
+/** A static evaluation of positions, where a depth-first search like {@link GameAlphaBetaActor} stops descending. */
+@FunctionalInterface public interface GameEvaluator {
+	/**
+	 * Return the estimated score of the unfinished game on the board, from the perspective of the first player
+	 * like {@link maaartin.game.Game#score()}. It must lie strictly between -1 and +1, so that decided games take precedence.
+	 * The board may be modified temporarily, but it must be left in its original state.
+	 */
+	double evaluate(GameBoard<?> board);
+
+	/** The evaluator knowing nothing, which considers all unfinished games to be balanced. */
+	GameEvaluator NEUTRAL = board -> 0;
+}
@@ -0,0 +1,52 @@
+package maaartin.game.ai;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * An estimator of the number of distinct 64-bit hashes added, using HyperLogLog with {@value #N_REGISTERS} one-byte registers.
+ *
+ * <p>It needs a constant 1 kB and its standard error is about 3%, which is good enough for instrumentation.
+ * The hashes get mixed before use, so that even poorly distributed ones like {@link maaartin.game.Game#hash64()} work.
+ */
+@NotThreadSafe public final class GameHyperLogLog {
+	public void add(long hash) {
+		final long mixed = mix64(hash);
+		final int index = (int) (mixed >>> (Long.SIZE - INDEX_BITS));
+		final int rank = Math.min(Long.numberOfLeadingZeros(mixed << INDEX_BITS), Long.SIZE - INDEX_BITS) + 1;
+		if (registers[index] < rank) registers[index] = (byte) rank;
+	}
+
+	/** Return the estimated number of distinct hashes added. */
+	public long estimate() {
+		double sum = 0;
+		int nZeros = 0;
+		for (final byte r : registers) {
+			sum += 1.0 / (1L << r);
+			if (r==0) ++nZeros;
+		}
+		final double estimate = ALPHA * N_REGISTERS * N_REGISTERS / sum;
+		// The small range correction, i.e., linear counting, which is more precise when many registers are unused.
+		if (estimate <= 2.5 * N_REGISTERS && nZeros > 0) return Math.round(N_REGISTERS * Math.log((double) N_REGISTERS / nZeros));
+		return Math.round(estimate);
+	}
+
+	public void clear() {
+		Arrays.fill(registers, (byte) 0);
+	}
+
+	/** The finalizer of SplittableRandom, see also {@link maaartin.game.GameRandom}. */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static final int INDEX_BITS = 10;
+	private static final int N_REGISTERS = 1 << INDEX_BITS;
+	/** The bias correction constant for many registers, see the HyperLogLog paper by Flajolet et al. */
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / N_REGISTERS);
+
+	private final byte[] registers = new byte[N_REGISTERS];
+}
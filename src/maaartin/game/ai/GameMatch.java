@@ -74,10 +74,11 @@ public abstract class GameMatch<G extends Game<G>> implements Runnable {
 		while (true) {
 			if (game.isFinished()) break;
 			final GameActor actor = game.playerOnTurn().ordinal() == 0 ? firstActor : secondActor;
-			final String move = actor.selectMove(game);
-			checkNotNull(move);
+			final int move = actor.selectMoveCode(game);
 			game = game.play(move);
 		}
+		firstActor.stopPondering();
+		secondActor.stopPondering();
 		return game.score();
 	}
 
@@ -1,48 +1,79 @@
 package maaartin.game.ai;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import com.google.common.base.Function;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
 
 import de.grajcar.dout.Dout;
 
 import maaartin.game.Game;
 import maaartin.game.GameAIParameters;
 import maaartin.game.GameActor;
+import maaartin.game.GameBoard;
+import maaartin.game.GameRandom;
 
 @RequiredArgsConstructor public final class GameMonteCarloActor implements GameActor {
 	public GameMonteCarloActor() {
 		this(new GameAIParameters());
 	}
 
-	@RequiredArgsConstructor private static final class EvaluatorStats {
+	/** The state shared by all nodes of a search, including the optional instrumentation (see {@link GameAIParameters#isCollectingStats()}). */
+	private static final class EvaluatorStats {
+		/** Start a new search with the given limit, forgetting the statistics of the previous one. */
+		void restart(Game<?> root, GameSearchLimit limit, boolean isCollecting) {
+			this.root = root;
+			this.limit = limit;
+			this.isCollecting = isCollecting;
+			uniqueStates.clear();
+			nPlayouts = 0;
+			nNodes = 0;
+		}
+
+		/** Count the playout starting in the given game. If collecting, count the states too, with symmetrical ones being the same. */
 		void add(Game<?> game) {
 			//			if (game==root) return;
-			if (visited.add(game)) {
-				++nUnique;
-			} else {
-				++nRepeated;
-			}
+			++nPlayouts;
+			if (!isCollecting) return;
+			uniqueStates.add(game.canonicalHash64());
 		}
 
-		private final Game<?> root;
-		private final Set<Game<?>> visited = Sets.newHashSet();
-		@Getter private int nUnique;
-		@Getter private int nRepeated;
+		/** Return the estimated number of distinct states the playouts started from. */
+		long nUnique() {
+			return Math.min(uniqueStates.estimate(), nPlayouts);
+		}
+
+		/** Return the estimated number of playouts starting from an already seen state. */
+		long nRepeated() {
+			return nPlayouts - nUnique();
+		}
+
+		/** Return true if the search should stop spending its budget. */
+		boolean isStopped() {
+			return limit.isReached(nNodes);
+		}
+
+		private Game<?> root;
+		private GameSearchLimit limit;
+		/** The number of nodes created by the current search. */
+		private int nNodes;
+
+		/** The number of playouts run by the current search. */
+		private long nPlayouts;
+		private boolean isCollecting;
+		private final GameHyperLogLog uniqueStates = new GameHyperLogLog();
 	}
 
 	private static final class Evaluator {
@@ -60,11 +91,13 @@ import maaartin.game.GameActor;
 			private final double uncertaintyWeight;
 		}
 
-		private Evaluator(Game<?> game, GameAIParameters parameters, long seed, EvaluatorStats stats) {
+		private Evaluator(Game<?> game, int move, GameAIParameters parameters, GameRandom random, EvaluatorStats stats, GameBoard<?> board) {
 			this.game = game;
+			this.move = move;
 			this.parameters = parameters;
-			random = new Random(seed ^ (seed>>32));
+			this.random = random;
 			this.stats = stats;
+			this.board = board;
 			ownSum = game.score();
 			ownCount = 1;
 		}
@@ -95,7 +128,7 @@ import maaartin.game.GameActor;
 		private void spendInternalNormal(int budget) {
 			while (true) {
 				for (final Evaluator e : evaluators) {
-					if (budget-- <= 0) return;
+					if (budget-- <= 0 || stats.isStopped()) return;
 					e.spend(1);
 				}
 			}
@@ -109,7 +142,7 @@ import maaartin.game.GameActor;
 			final int length = evaluators.size();
 			while (true) {
 				for (final Evaluator e : evaluators) {
-					if (budget-- <= 0) return;
+					if (budget-- <= 0 || stats.isStopped()) return;
 					e.spend(1);
 				}
 				if (isMinimizing()) continue;
@@ -118,7 +151,7 @@ import maaartin.game.GameActor;
 				avg /= length;
 				for (final Evaluator e : evaluators) {
 					if (e.score(10) < avg) continue;
-					if (budget-- <= 0) return;
+					if (budget-- <= 0 || stats.isStopped()) return;
 					e.spend(1);
 				}
 			}
@@ -128,14 +161,14 @@ import maaartin.game.GameActor;
 			final int length = evaluators.size();
 			while (true) {
 				for (int i=0; i<length; ++i, --budget) {
-					if (budget<=0) return;
+					if (budget<=0 || stats.isStopped()) return;
 					evaluators.get(i).spend(1);
 				}
 				final ScoreFunction function = new ScoreFunction(isMinimizing(), 5);
 				final Ordering<Evaluator> ordering = Ordering.natural().onResultOf(function);
 				Collections.sort(evaluators, ordering);
 				for (int i=length/2; i<length; ++i, --budget) {
-					if (budget<=0) return;
+					if (budget<=0 || stats.isStopped()) return;
 					evaluators.get(i).spend(1);
 				}
 			}
@@ -151,7 +184,7 @@ import maaartin.game.GameActor;
 					final boolean recurse = false && n==1 && budget > 10*limit;
 					final int b = recurse ? 10 : 1;
 					for (int i=0; i<limit; ++i, budget-=b) {
-						if (budget<=0) return;
+						if (budget<=0 || stats.isStopped()) return;
 						evaluators.get(i).spend(b);
 					}
 					Collections.sort(evaluators, ordering);
@@ -170,7 +203,7 @@ import maaartin.game.GameActor;
 					final boolean recurse = n==1 && budget > 10*limit;
 					final int b = recurse ? 10 : 1;
 					for (int i=0; i<limit; ++i, budget-=b) {
-						if (budget<=0) return;
+						if (budget<=0 || stats.isStopped()) return;
 						evaluators.get(i).spend(b);
 					}
 					Collections.sort(evaluators, ordering);
@@ -184,17 +217,44 @@ import maaartin.game.GameActor;
 				final boolean recurse = budget > 10*length;
 				final int b = recurse ? 10 : 1;
 				for (int i=0; i<length; ++i, budget-=b) {
-					if (budget<=0) return;
+					if (budget<=0 || stats.isStopped()) return;
 					evaluators.get(i).spend(b);
 				}
 			}
 		}
 
+		/** Return the number of nodes of the subtree. */
+		int size() {
+			int result = 1;
+			if (evaluators!=null) {
+				for (final Evaluator e : evaluators) result += e.size();
+			}
+			return result;
+		}
+
+		/** Return the depth of the subtree. */
+		int depth() {
+			int result = 0;
+			if (evaluators!=null) {
+				for (final Evaluator e : evaluators) result = Math.max(result, 1 + e.depth());
+			}
+			return result;
+		}
+
+		/** Add the sums and counts of the children to the arrays indexed by the move leading to them. */
+		void addRootStats(double[] sums, double[] counts) {
+			if (evaluators==null) return;
+			for (final Evaluator e : evaluators) {
+				sums[e.move] += e.sum();
+				counts[e.move] += e.count();
+			}
+		}
+
 		private void propagate() {
 			if (evaluators==null) return;
 			if (evaluators.isEmpty()) return;
 			final Evaluator bestEvaluator = evaluators.get(getBestIndex());
-			bestChild = bestEvaluator.game;
+			bestMove = bestEvaluator.move;
 			// TODO This is sort of minimax, which makes little sense here.
 			propagatedSum = bestEvaluator.sum();
 			propagatedCount = bestEvaluator.count();
@@ -209,19 +269,24 @@ import maaartin.game.GameActor;
 			++ownCount;
 		}
 
+		/** Play a game starting in {@link #game} via the rollout policy and return the final score. */
 		private double nextScore() {
-			for (Game<?> game=this.game; ; game=game.play(random)) {
-				stats.add(game);
-				if (game.isFinished()) return game.score();
-			}
+			stats.add(game);
+			return parameters.rolloutPolicy().playout(load(board, game), random);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <G extends Game<G>> GameBoard<G> load(GameBoard<G> board, Game<?> game) {
+			return board.load((G) game);
 		}
 
 		private void initEvaluators() {
-			@SuppressWarnings("unchecked")
-			final ImmutableList<Game<?>> children = (ImmutableList<Game<?>>) game.children().keySet().asList();
-			evaluators = Lists.newArrayList();
-			for (final Game<?> game : children) {
-				evaluators.add(new Evaluator(game, parameters, random.nextLong(), stats));
+			final int[] moves = new int[game.nMoveCodes()];
+			final int length = game.moves(moves);
+			evaluators = Lists.newArrayListWithCapacity(length);
+			stats.nNodes += length;
+			for (int i=0; i<length; ++i) {
+				evaluators.add(new Evaluator(game.play(moves[i]), moves[i], parameters, random, stats, board));
 			}
 			Collections.shuffle(Arrays.asList(evaluators), random);
 		}
@@ -248,13 +313,18 @@ import maaartin.game.GameActor;
 		}
 
 		private final Game<?> game;
+		/** The code of the move leading to {@link #game}, or {@link GameMonteCarloActor#NO_MOVE} for the root. */
+		private final int move;
 		private final GameAIParameters parameters;
-		private final Random random;
+		/** The generator used for rollouts, shared by the whole tree. */
+		private final GameRandom random;
 		@Getter private final EvaluatorStats stats;
+		/** The board used for rollouts, shared by the whole tree. */
+		private final GameBoard<?> board;
 
 		private List<Evaluator> evaluators;
 
-		@Getter private Game<?> bestChild;
+		@Getter private int bestMove = NO_MOVE;
 		private double ownSum;
 		private double ownCount;
 		private double propagatedSum;
@@ -262,20 +332,111 @@ import maaartin.game.GameActor;
 	}
 
 	@Override public String selectMove(Game<?> game) {
-		@SuppressWarnings("unchecked")
-		final ImmutableList<Game<?>> children = (ImmutableList<Game<?>>) game.children().keySet().asList();
-		checkArgument(!children.isEmpty());
-		final EvaluatorStats stats = new EvaluatorStats(game);
-		final Evaluator evaluator = new Evaluator(game, parameters, random.nextLong(), stats);
-		Game<?> bestChild = evaluator.spend(parameters.budget()).bestChild();
-		Dout.a(stats.nUnique(), stats.nRepeated());
-		if (bestChild==null) bestChild = game.play(random);
-		checkNotNull(bestChild);
-		final String result = game.children().get(bestChild);
-		checkNotNull(result);
+		return game.moveToString(selectMoveCode(game));
+	}
+
+	@Override public int selectMoveCode(Game<?> game) {
+		checkArgument(!game.isFinished());
+		final long start = System.nanoTime();
+		final List<Evaluator> roots;
+		final int bestMove;
+		if (parameters.nThreads() > 1) {
+			roots = searchInParallel(game);
+			bestMove = mergedBestMove(game, roots);
+		} else {
+			roots = Collections.singletonList(search(game, random.split(), GameSearchLimit.start(parameters)));
+			bestMove = roots.get(0).bestMove();
+		}
+		final int result = bestMove==NO_MOVE ? GameRandomActor.randomMove(game, random) : bestMove;
+		GameSearchMonitor.report(metrics(game, roots, bestMove, System.nanoTime() - start));
 		return result;
 	}
 
+	/** Return the metrics of a search, computed from all its trees. */
+	private GameSearchMetrics metrics(Game<?> game, List<Evaluator> roots, int bestMove, long elapsedNanos) {
+		final double[] sums = new double[game.nMoveCodes()];
+		final double[] counts = new double[game.nMoveCodes()];
+		long nPlayouts = 0;
+		int treeSize = 0;
+		int maxDepth = 0;
+		for (final Evaluator root : roots) {
+			root.addRootStats(sums, counts);
+			nPlayouts += root.stats().nPlayouts;
+			treeSize += root.size();
+			maxDepth = Math.max(maxDepth, root.depth());
+		}
+		double totalCount = 0;
+		for (final double c : counts) totalCount += c;
+		final double bestMoveShare = bestMove==NO_MOVE || totalCount==0 ? 0 : counts[bestMove] / totalCount;
+		return new GameSearchMetrics(getClass().getSimpleName(), game.turn(), nPlayouts, treeSize, maxDepth, bestMoveShare, elapsedNanos);
+	}
+
+	/** Run {@link GameAIParameters#nThreads()} independent searches and return their roots. */
+	private List<Evaluator> searchInParallel(Game<?> game) {
+		final int nThreads = parameters.nThreads();
+		final List<Callable<Evaluator>> tasks = Lists.newArrayListWithCapacity(nThreads);
+		final GameSearchLimit limit = GameSearchLimit.start(parameters);
+		for (int i=0; i<nThreads; ++i) {
+			final GameRandom taskRandom = random.split();
+			final GameSearchLimit taskLimit = limit.copy();
+			tasks.add(() -> search(game, taskRandom, taskLimit));
+		}
+		final List<Evaluator> result = Lists.newArrayListWithCapacity(nThreads);
+		try {
+			for (final Future<Evaluator> future : pool(nThreads).invokeAll(tasks)) result.add(future.get());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return result;
+	}
+
+	/** Merge the statistics of the children of the roots and return the move with the best merged average. */
+	private int mergedBestMove(Game<?> game, List<Evaluator> roots) {
+		final double[] sums = new double[game.nMoveCodes()];
+		final double[] counts = new double[game.nMoveCodes()];
+		for (final Evaluator root : roots) root.addRootStats(sums, counts);
+		final double factor = game.playerOnTurn().ordinal() == 1 ? -1 : +1;
+		int result = NO_MOVE;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int move=0; move<counts.length; ++move) {
+			if (counts[move] == 0) continue;
+			final double score = factor * sums[move] / counts[move];
+			if (score <= bestScore) continue;
+			bestScore = score;
+			result = move;
+		}
+		return result;
+	}
+
+	/**
+	 * Run a single search using its own board and the given random and limit, which mustn't be used concurrently.
+	 *
+	 * <p>The tree never gets reused, as the children of the root get only sampled and never expanded, so the game after
+	 * the opponent's reply would never be found in it.
+	 */
+	private Evaluator search(Game<?> game, GameRandom random, GameSearchLimit limit) {
+		final Evaluator root = new Evaluator(game, NO_MOVE, parameters, random, new EvaluatorStats(), game.newBoard());
+		root.stats().restart(game, limit, parameters.isCollectingStats());
+		root.spend(parameters.budget());
+		if (parameters.isCollectingStats()) Dout.a(root.stats().nUnique(), root.stats().nRepeated());
+		return root;
+	}
+
+	/** Return the pool for parallel searches, creating it if needed. */
+	private synchronized ForkJoinPool pool(int nThreads) {
+		if (pool==null || pool.getParallelism() != nThreads) {
+			if (pool!=null) pool.shutdown();
+			pool = new ForkJoinPool(nThreads);
+		}
+		return pool;
+	}
+
+	private static final int NO_MOVE = -1;
+
 	@Getter private final GameAIParameters parameters;
-	private final Random random = new Random();
+	private final GameRandom random = new GameRandom();
+	private ForkJoinPool pool;
 }
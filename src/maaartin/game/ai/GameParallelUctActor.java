@@ -0,0 +1,268 @@
+package maaartin.game.ai;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import com.google.common.collect.Lists;
+
+import maaartin.game.Game;
+import maaartin.game.GameAIParameters;
+import maaartin.game.GameActor;
+import maaartin.game.GameBoard;
+import maaartin.game.GameRandom;
+
+/**
+ * A tree-parallel variant of {@link GameUctActor}, where {@link GameAIParameters#nThreads()} threads descend a shared tree.
+ *
+ * <p>The statistics of each node are packed into a single long (visits in the upper half, points in the lower half),
+ * so that they get updated atomically without any locking. A thread counts its visit when descending
+ * and adds the points after its playout. Until then, the pending visit acts as a virtual loss,
+ * which steers the other threads to different branches.
+ *
+ * <p>A node gets expanded by the thread which manages to claim it via a CAS. The other threads don't wait,
+ * they simply do their playouts from the node. The children are published by setting the index of the first child.
+ *
+ * <p>As the points are integral (2 for a win, 1 for a draw, 0 for a loss), other scores get rounded.
+ */
+@RequiredArgsConstructor public final class GameParallelUctActor implements GameActor {
+	public GameParallelUctActor() {
+		this(new GameAIParameters());
+	}
+
+	private final class Worker implements Callable<Void> {
+		Worker(Game<?> game, GameRandom random, GameSearchLimit limit) {
+			this.game = game;
+			this.random = random;
+			this.limit = limit;
+			board = game.newBoard();
+			moveBuffer = new int[game.nMoveCodes()];
+		}
+
+		@Override public Void call() {
+			while (!limit.isReached(nNodes.get()) && remainingPlayouts.getAndDecrement() > 0) {
+				iterate();
+				++nPlayouts;
+			}
+			return null;
+		}
+
+		private void iterate() {
+			load(board, game);
+			int node = ROOT;
+			int depth = 0;
+			stats.getAndAdd(ROOT, VISIT);
+			while (!board.isFinished()) {
+				int first = firstChildren.get(node);
+				if (first < 0) {
+					if (first != UNEXPANDED || visits(stats.get(node)) < 2 || !expand(node)) break;
+					first = firstChildren.get(node);
+				}
+				if (depth+1 >= path.length) {
+					path = Arrays.copyOf(path, 2 * path.length);
+					signs = Arrays.copyOf(signs, path.length);
+				}
+				signs[depth] = board.playerOnTurn().ordinal() == 0 ? +1 : -1;
+				node = select(node, first);
+				stats.getAndAdd(node, VISIT);
+				board.make(moves[node]);
+				path[++depth] = node;
+			}
+			if (depth > maxDepth) maxDepth = depth;
+			final double score = parameters.rolloutPolicy().playout(board, random);
+			for (int d=1; d<=depth; ++d) stats.getAndAdd(path[d], Math.round(1 + signs[d-1] * score));
+		}
+
+		/** Return the child with the best UCB1 value, including the virtual losses. An unvisited child gets returned immediately. */
+		private int select(int node, int first) {
+			final int end = first + childCounts[node];
+			final double logVisits = Math.log(visits(stats.get(node)));
+			// The points are twice the score mapped to [0, 1], so the weight gets halved for consistency with GameUctActor.
+			final double explorationWeight = 0.5 * parameters.explorationWeight();
+			int result = first;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int child=first; child<end; ++child) {
+				final long packed = stats.get(child);
+				final int n = visits(packed);
+				if (n==0) return child;
+				final double value = points(packed) / (2.0 * n) + explorationWeight * Math.sqrt(logVisits / n);
+				if (value > bestValue) {
+					bestValue = value;
+					result = child;
+				}
+			}
+			return result;
+		}
+
+		/** Try to create the children of the given node. Return false if another thread got it or the pool is exhausted. */
+		private boolean expand(int node) {
+			if (!firstChildren.compareAndSet(node, UNEXPANDED, EXPANDING)) return false;
+			final int length = board.moves(moveBuffer);
+			final int first = nNodes.getAndAdd(length);
+			if (first + length > moves.length) {
+				firstChildren.set(node, EXHAUSTED);
+				return false;
+			}
+			for (int i=0; i<length; ++i) {
+				final int child = first + i;
+				stats.set(child, 0);
+				firstChildren.set(child, UNEXPANDED);
+				moves[child] = (short) moveBuffer[i];
+			}
+			childCounts[node] = length;
+			firstChildren.set(node, first); // Publishes the children.
+			return true;
+		}
+
+		private final Game<?> game;
+		private final GameRandom random;
+		private final GameSearchLimit limit;
+		private final GameBoard<?> board;
+		private final int[] moveBuffer;
+		/** The nodes visited in the current iteration, indexed by depth. */
+		private int[] path = new int[INITIAL_PATH_LENGTH];
+		/** The sign of the player to move at the node of the same depth, +1 for the first player. */
+		private int[] signs = new int[INITIAL_PATH_LENGTH];
+		/** The counters for {@link GameSearchMetrics}, owned by the worker's thread until it finishes. */
+		private int nPlayouts;
+		private int maxDepth;
+	}
+
+	@Override public String selectMove(Game<?> game) {
+		return game.moveToString(selectMoveCode(game));
+	}
+
+	/** Run {@link GameAIParameters#budget()} playouts in total, shared among all threads. */
+	@Override public synchronized int selectMoveCode(Game<?> game) {
+		checkArgument(!game.isFinished());
+		checkArgument(game.nMoveCodes() <= Short.MAX_VALUE, "Too many move codes for packing into shorts");
+		allocate(parameters.maxNodes());
+		nNodes.set(1);
+		stats.set(ROOT, 0);
+		firstChildren.set(ROOT, UNEXPANDED);
+		remainingPlayouts.set(parameters.budget());
+		final long start = System.nanoTime();
+
+		final int nThreads = Math.max(1, parameters.nThreads());
+		final List<Worker> workers = Lists.newArrayListWithCapacity(nThreads);
+		final GameSearchLimit limit = GameSearchLimit.start(parameters);
+		for (int i=0; i<nThreads; ++i) workers.add(new Worker(game, random.split(), limit.copy()));
+		try {
+			for (final Future<Void> future : pool(nThreads).invokeAll(workers)) future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		long nPlayouts = 0;
+		int maxDepth = 0;
+		for (final Worker worker : workers) {
+			nPlayouts += worker.nPlayouts;
+			maxDepth = Math.max(maxDepth, worker.maxDepth);
+		}
+		final int best = bestChild();
+		final int result = best==NO_NODE ? GameRandomActor.randomMove(game, random) : moves[best];
+		final double bestMoveShare = best==NO_NODE ? 0 : (double) visits(stats.get(best)) / visits(stats.get(ROOT));
+		final int treeSize = Math.min(nNodes.get(), moves.length);
+		GameSearchMonitor.report(new GameSearchMetrics(
+				getClass().getSimpleName(), game.turn(), nPlayouts, treeSize, maxDepth, bestMoveShare, System.nanoTime() - start));
+		return result;
+	}
+
+	/** Make sure that the node arrays have the given length, keeping them when they already do. */
+	private void allocate(int maxNodes) {
+		checkArgument(maxNodes > 0);
+		if (moves.length == maxNodes) return;
+		stats = new AtomicLongArray(maxNodes);
+		firstChildren = new AtomicIntegerArray(maxNodes);
+		childCounts = new int[maxNodes];
+		moves = new short[maxNodes];
+	}
+
+	/** Return the most visited child of the root, or {@link #NO_NODE} if there's none. */
+	private int bestChild() {
+		final int first = firstChildren.get(ROOT);
+		if (first < 0) return NO_NODE;
+		int result = NO_NODE;
+		int bestVisits = -1;
+		for (int child=first; child<first+childCounts[ROOT]; ++child) {
+			final int n = visits(stats.get(child));
+			if (n <= bestVisits) continue;
+			bestVisits = n;
+			result = child;
+		}
+		return result;
+	}
+
+	/** Return the visits of the root followed by those of its children, for checking the consistency of the last search. */
+	int[] rootVisits() {
+		final int first = firstChildren.get(ROOT);
+		final int length = first < 0 ? 0 : childCounts[ROOT];
+		final int[] result = new int[1 + length];
+		result[0] = visits(stats.get(ROOT));
+		for (int i=0; i<length; ++i) result[1+i] = visits(stats.get(first + i));
+		return result;
+	}
+
+	/** Return the pool for the workers, creating it if needed. */
+	private ForkJoinPool pool(int nThreads) {
+		if (pool==null || pool.getParallelism() != nThreads) {
+			if (pool!=null) pool.shutdown();
+			pool = new ForkJoinPool(nThreads);
+		}
+		return pool;
+	}
+
+	private static int visits(long packed) {
+		return (int) (packed >>> 32);
+	}
+
+	private static long points(long packed) {
+		return packed & 0xFFFF_FFFFL;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <G extends Game<G>> void load(GameBoard<G> board, Game<?> game) {
+		board.load((G) game);
+	}
+
+	private static final int ROOT = 0;
+	private static final long VISIT = 1L << 32;
+	private static final int NO_NODE = -1;
+	private static final int INITIAL_PATH_LENGTH = 128;
+
+	/** Values of {@link #firstChildren} for nodes without children. */
+	private static final int UNEXPANDED = -1;
+	private static final int EXPANDING = -2;
+	private static final int EXHAUSTED = -3;
+
+	@Getter private final GameAIParameters parameters;
+	private final GameRandom random = new GameRandom();
+	private ForkJoinPool pool;
+
+	/** The number of nodes in use (it may exceed the capacity, when the pool gets exhausted). */
+	private final AtomicInteger nNodes = new AtomicInteger();
+	private final AtomicInteger remainingPlayouts = new AtomicInteger();
+
+	/** The packed visits and points of the node, see the class javadoc. The node arrays below are indexed by node. */
+	private AtomicLongArray stats;
+	/** The index of the first child, or one of the negative values {@link #UNEXPANDED}, {@link #EXPANDING}, {@link #EXHAUSTED}. */
+	private AtomicIntegerArray firstChildren;
+	/** The number of children, valid only if the node has been expanded. */
+	private int[] childCounts;
+	/** The code of the move leading to the node. */
+	private short[] moves = new short[0];
+}
@@ -0,0 +1,83 @@
+package maaartin.game.ai;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import maaartin.game.GameAIParameters;
+
+/**
+ * Runs a search on a background daemon thread while the opponent thinks, see {@link GameAIParameters#isPondering()}.
+ *
+ * <p>At most one search runs at a time. {@link #stop()} makes it finish and waits for it,
+ * so that afterwards the caller may access the state of the search without any synchronization.
+ */
+@ThreadSafe final class GamePonderer {
+	/** Stop the previous search and start the given one, which must honor the limit passed to it. */
+	synchronized void start(GameAIParameters parameters, Consumer<GameSearchLimit> search) {
+		stop();
+		stopRequest = new AtomicBoolean();
+		final GameSearchLimit limit = GameSearchLimit.untilStopped(parameters, stopRequest);
+		future = executor().submit(() -> search.accept(limit));
+	}
+
+	/**
+	 * Stop the running search if any and wait for it to finish, even when interrupted,
+	 * as the caller mustn't touch the search state before.
+	 */
+	synchronized void stop() {
+		if (future==null) return;
+		stopRequest.set(true);
+		await(future);
+	}
+
+	/** Wait for the running search to finish on its own, which only happens when it has a node limit. */
+	void await() {
+		final Future<?> f;
+		synchronized (this) {
+			f = future;
+		}
+		if (f!=null) await(f);
+	}
+
+	/** Return true if a search is running now. */
+	synchronized boolean isRunning() {
+		return future!=null && !future.isDone();
+	}
+
+	/** Wait for the search to finish, rethrowing its failure only once. */
+	private synchronized void await(Future<?> f) {
+		try {
+			Uninterruptibles.getUninterruptibly(f);
+		} catch (final ExecutionException e) {
+			if (future==f) future = null;
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/** Return the executor, creating it if needed. */
+	private ExecutorService executor() {
+		if (executor==null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("ponderer-%d")
+					.setDaemon(true)
+					.setPriority(Thread.MIN_PRIORITY)
+					.build());
+		}
+		return executor;
+	}
+
+	@Nullable private ExecutorService executor;
+	/** The current or the last search, kept after it finishes, unless it failed. */
+	@Nullable private Future<?> future;
+	@Nullable private AtomicBoolean stopRequest;
+}
@@ -1,18 +1,16 @@
 package maaartin.game.ai;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Random;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
-import com.google.common.collect.ImmutableMap;
-
 import maaartin.game.Game;
 import maaartin.game.GameAIParameters;
 import maaartin.game.GameActor;
+import maaartin.game.GameRandom;
 
 @RequiredArgsConstructor public final class GameRandomActor implements GameActor {
 	public GameRandomActor() {
@@ -20,15 +18,21 @@ import maaartin.game.GameActor;
 	}
 
 	@Override public String selectMove(Game<?> game) {
-		@SuppressWarnings("unchecked")
-		final ImmutableMap<Game<?>, String> children = (ImmutableMap<Game<?>, String>) game.children();
-		checkArgument(!children.isEmpty());
-		final Game<?> child = game.play(random);
-		final String result = game.children().get(child);
-		checkNotNull(result);
-		return result;
+		return game.moveToString(selectMoveCode(game));
+	}
+
+	@Override public int selectMoveCode(Game<?> game) {
+		return randomMove(game, random);
+	}
+
+	/** Return the code of a uniformly chosen move. */
+	static int randomMove(Game<?> game, Random random) {
+		final int[] moves = new int[game.nMoveCodes()];
+		final int length = game.moves(moves);
+		checkArgument(length>0);
+		return moves[random.nextInt(length)];
 	}
 
 	@Getter private final GameAIParameters parameters;
-	private final Random random = new Random();
+	private final GameRandom random = new GameRandom();
 }
@@ -0,0 +1,22 @@
+package maaartin.game.ai;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** The Flight Recorder event corresponding to {@link GameSearchMetrics}. */
+@Name("maaartin.game.ai.Search") @Label("Search") @Category({"Game", "AI"}) @Description("A search for a single move")
+@StackTrace(false) final class GameSearchEvent extends Event {
+	@Label("Actor") String actor;
+	@Label("Turn") int turn;
+	@Label("Playouts") long playouts;
+	@Label("Playouts per Second") double playoutsPerSecond;
+	@Label("Tree Size") int treeSize;
+	@Label("Max Depth") int maxDepth;
+	@Label("Best Move Share") double bestMoveShare;
+	@Label("Elapsed") @Timespan(Timespan.NANOSECONDS) long elapsed;
+}
@@ -0,0 +1,75 @@
+package maaartin.game.ai;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import maaartin.game.GameAIParameters;
+
+/**
+ * The limit of a single search given by {@link GameAIParameters#millisPerMove()} and {@link GameAIParameters#nodeLimit()}.
+ * The playout budget gets handled by the actors themselves, the search stops at whatever comes first.
+ * A background search may be given a stop request instead of the deadline, see {@link #untilStopped(GameAIParameters, AtomicBoolean)}.
+ *
+ * <p>As reading the clock isn't free, it (and the stop request) gets checked only on every {@value #CHECK_INTERVAL}-th call.
+ * Once reached, the limit stays reached. Every thread needs its own instance, see {@link #copy()}.
+ */
+@NotThreadSafe public final class GameSearchLimit {
+	private GameSearchLimit(boolean hasDeadline, long deadline, int nodeLimit, @Nullable AtomicBoolean stopRequest) {
+		this.hasDeadline = hasDeadline;
+		this.deadline = deadline;
+		this.nodeLimit = nodeLimit;
+		this.stopRequest = stopRequest;
+	}
+
+	/** Return a new limit for a search starting now. */
+	public static GameSearchLimit start(GameAIParameters parameters) {
+		return start(parameters, null);
+	}
+
+	/** Return a new limit for a search starting now, which additionally stops when the request gets set. */
+	public static GameSearchLimit start(GameAIParameters parameters, @Nullable AtomicBoolean stopRequest) {
+		final long millis = parameters.millisPerMove();
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		return new GameSearchLimit(millis > 0, deadline, parameters.nodeLimit(), stopRequest);
+	}
+
+	/** Return a new limit for a background search, which ignores the time per move and runs until the request gets set. */
+	public static GameSearchLimit untilStopped(GameAIParameters parameters, AtomicBoolean stopRequest) {
+		return new GameSearchLimit(false, 0, parameters.nodeLimit(), stopRequest);
+	}
+
+	/** Return a new instance with the same deadline and node limit, to be used by another thread. */
+	public GameSearchLimit copy() {
+		final GameSearchLimit result = new GameSearchLimit(hasDeadline, deadline, nodeLimit, stopRequest);
+		result.isReached = isReached;
+		return result;
+	}
+
+	/**
+	 * Return true if the search should stop now. It should be called about once per playout.
+	 *
+	 * @param nNodes the current size of the search tree
+	 */
+	public boolean isReached(int nNodes) {
+		if (isReached) return true;
+		if (nodeLimit > 0 && nNodes >= nodeLimit) return isReached = true;
+		if (++nCalls % CHECK_INTERVAL != 0) return false;
+		if (hasDeadline && System.nanoTime() - deadline >= 0) return isReached = true;
+		return isReached = stopRequest!=null && stopRequest.get();
+	}
+
+	private static final int CHECK_INTERVAL = 16;
+
+	private final boolean hasDeadline;
+	/** The deadline in terms of {@link System#nanoTime()}, valid only if {@link #hasDeadline}. */
+	private final long deadline;
+	private final int nodeLimit;
+	@Nullable private final AtomicBoolean stopRequest;
+
+	private int nCalls;
+	private boolean isReached;
+}
@@ -0,0 +1,7 @@
+package maaartin.game.ai;
+
+/** Gets informed about every finished search, see {@link GameSearchMonitor#addListener(GameSearchListener)}. */
+@FunctionalInterface public interface GameSearchListener {
+	/** Called by the searching thread right before the move gets returned, so it should be fast and thread-safe. */
+	void searchFinished(GameSearchMetrics metrics);
+}
@@ -0,0 +1,36 @@
+package maaartin.game.ai;
+
+import javax.annotation.concurrent.Immutable;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/** The statistics of a single search for a move, see {@link GameSearchMonitor}. */
+@RequiredArgsConstructor @Getter @Immutable public final class GameSearchMetrics {
+	public double playoutsPerSecond() {
+		return elapsedNanos==0 ? 0 : 1e9 * playouts / elapsedNanos;
+	}
+
+	@SuppressWarnings("boxing") @Override public String toString() {
+		final String share = Double.isNaN(bestMoveShare) ? "n/a" : String.format("%.1f%%", 100 * bestMoveShare);
+		return String.format("%s turn %d: %d playouts in %.1f ms (%.0f/s), tree size %d, max depth %d, best move share %s",
+				actor, turn, playouts, 1e-6 * elapsedNanos, playoutsPerSecond(), treeSize, maxDepth, share);
+	}
+
+	/** The simple name of the class of the actor. */
+	private final String actor;
+	/** The turn of the game searched. */
+	private final int turn;
+	/** The number of playouts run by this search. */
+	private final long playouts;
+	/** The number of nodes of the tree(s) at the end, including those reused from previous searches. */
+	private final int treeSize;
+	/** The maximum depth reached by this search, relative to the searched game. */
+	private final int maxDepth;
+	/**
+	 * The fraction of the root visits spent on the chosen move, a measure of confidence.
+	 * It's NaN for actors without root visits, like {@link GameAlphaBetaActor}.
+	 */
+	private final double bestMoveShare;
+	private final long elapsedNanos;
+}
@@ -0,0 +1,124 @@
+package maaartin.game.ai;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The instrumentation hub getting the {@link GameSearchMetrics} of every search done by the actors.
+ * It notifies the registered listeners, aggregates the metrics for JMX (see {@link GameSearchMonitorMXBean})
+ * and emits Flight Recorder events named {@code maaartin.game.ai.Search}.
+ *
+ * <p>It costs a few atomic additions per move, so it's always on. The actors count their playouts in plain fields
+ * owned by the searching thread, so the searches themselves pay nothing.
+ */
+@ThreadSafe public final class GameSearchMonitor implements GameSearchMonitorMXBean {
+	private GameSearchMonitor() {
+	}
+
+	public static void addListener(GameSearchListener listener) {
+		LISTENERS.add(listener);
+	}
+
+	public static void removeListener(GameSearchListener listener) {
+		LISTENERS.remove(listener);
+	}
+
+	/** Return the instance registered with the platform MBean server under {@value #OBJECT_NAME}. */
+	public static GameSearchMonitor instance() {
+		return INSTANCE;
+	}
+
+	/** Record the metrics of a finished search, to be called by the actors. */
+	static void report(GameSearchMetrics metrics) {
+		INSTANCE.record(metrics);
+		for (final GameSearchListener listener : LISTENERS) listener.searchFinished(metrics);
+		final GameSearchEvent event = new GameSearchEvent();
+		if (!event.shouldCommit()) return;
+		event.actor = metrics.actor();
+		event.turn = metrics.turn();
+		event.playouts = metrics.playouts();
+		event.playoutsPerSecond = metrics.playoutsPerSecond();
+		event.treeSize = metrics.treeSize();
+		event.maxDepth = metrics.maxDepth();
+		event.bestMoveShare = metrics.bestMoveShare();
+		event.elapsed = metrics.elapsedNanos();
+		event.commit();
+	}
+
+	private void record(GameSearchMetrics metrics) {
+		searchCount.increment();
+		playoutCount.add(metrics.playouts());
+		searchNanos.add(metrics.elapsedNanos());
+		if (!Double.isNaN(metrics.bestMoveShare())) {
+			bestMoveShareSum.add(metrics.bestMoveShare());
+			bestMoveShareCount.increment();
+		}
+		maxTreeSize.accumulate(metrics.treeSize());
+		maxDepth.accumulate(metrics.maxDepth());
+	}
+
+	@Override public long getSearchCount() {
+		return searchCount.sum();
+	}
+
+	@Override public long getPlayoutCount() {
+		return playoutCount.sum();
+	}
+
+	@Override public long getSearchMillis() {
+		return searchNanos.sum() / 1_000_000;
+	}
+
+	@Override public double getPlayoutsPerSecond() {
+		final long nanos = searchNanos.sum();
+		return nanos==0 ? 0 : 1e9 * playoutCount.sum() / nanos;
+	}
+
+	@Override public double getBestMoveShare() {
+		final long n = bestMoveShareCount.sum();
+		return n==0 ? 0 : bestMoveShareSum.sum() / n;
+	}
+
+	@Override public long getMaxTreeSize() {
+		return maxTreeSize.get();
+	}
+
+	@Override public long getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	private static GameSearchMonitor createAndRegister() {
+		final GameSearchMonitor result = new GameSearchMonitor();
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(result, new ObjectName(OBJECT_NAME));
+		} catch (final InstanceAlreadyExistsException e) {
+			// Loaded by another class loader, so this instance is just invisible to JMX.
+		} catch (final JMException e) {
+			throw new RuntimeException(e);
+		}
+		return result;
+	}
+
+	public static final String OBJECT_NAME = "maaartin.game.ai:type=GameSearchMonitor";
+
+	private static final List<GameSearchListener> LISTENERS = new CopyOnWriteArrayList<>();
+	private static final GameSearchMonitor INSTANCE = createAndRegister();
+
+	private final LongAdder searchCount = new LongAdder();
+	private final LongAdder playoutCount = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+	private final DoubleAdder bestMoveShareSum = new DoubleAdder();
+	/** The number of searches reporting a best move share, see {@link GameSearchMetrics#bestMoveShare()}. */
+	private final LongAdder bestMoveShareCount = new LongAdder();
+	private final LongAccumulator maxTreeSize = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+}
@@ -0,0 +1,20 @@
+package maaartin.game.ai;
+
+/** The JMX view of {@link GameSearchMonitor}, aggregating all searches since the start. */
+public interface GameSearchMonitorMXBean {
+	long getSearchCount();
+
+	long getPlayoutCount();
+
+	long getSearchMillis();
+
+	/** Return the average throughput over all searches. */
+	double getPlayoutsPerSecond();
+
+	/** Return the average share of the chosen move over the searches reporting it. */
+	double getBestMoveShare();
+
+	long getMaxTreeSize();
+
+	long getMaxDepth();
+}
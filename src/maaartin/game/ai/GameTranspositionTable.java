@@ -0,0 +1,119 @@
+package maaartin.game.ai;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import maaartin.game.Game;
+
+/**
+ * A fixed-size hash table storing the playout statistics of positions keyed by {@link Game#hash64()},
+ * so that a search can pool the statistics of a position reached via different move orders.
+ *
+ * <p>It uses open addressing with buckets of {@value #BUCKET_SIZE} entries and no chaining. When a bucket is full,
+ * the least valuable entry gets replaced, which is one from an older generation (i.e., a previous search),
+ * or else the one with the fewest visits, or else the deepest one (having the highest turn).
+ *
+ * <p>Different positions with the same hash share their entry, which is rare enough to be ignored.
+ */
+@NotThreadSafe public final class GameTranspositionTable {
+	/** Create a table with at least the given number of entries (rounded up to a power of two). */
+	public GameTranspositionTable(int minCapacity) {
+		checkArgument(minCapacity > 0);
+		final int capacity = Math.max(BUCKET_SIZE, Integer.highestOneBit(minCapacity - 1) << 1);
+		checkArgument(capacity > 0, "Too big");
+		mask = capacity - 1;
+		keys = new long[capacity];
+		visits = new int[capacity];
+		sums = new double[capacity];
+		turns = new short[capacity];
+		generations = new byte[capacity];
+	}
+
+	/** Start a new search, making all existing entries candidates for replacement. Their statistics stay available. */
+	public void nextGeneration() {
+		++generation;
+	}
+
+	/** Add the result of a playout through the given position, creating its entry if needed. */
+	public void add(long hash, int turn, double score) {
+		final int bucket = bucket(hash);
+		int victim = bucket;
+		for (int i=bucket; i<bucket+BUCKET_SIZE; ++i) {
+			if (visits[i] > 0 && keys[i] == hash) {
+				++visits[i];
+				sums[i] += score;
+				generations[i] = generation;
+				return;
+			}
+			if (isLessValuable(i, victim)) victim = i;
+		}
+		keys[victim] = hash;
+		visits[victim] = 1;
+		sums[victim] = score;
+		turns[victim] = (short) turn;
+		generations[victim] = generation;
+	}
+
+	/** Return the average score of the given position, or the fallback if it's missing. */
+	public double mean(long hash, double fallback) {
+		final int bucket = bucket(hash);
+		for (int i=bucket; i<bucket+BUCKET_SIZE; ++i) {
+			if (visits[i] > 0 && keys[i] == hash) return sums[i] / visits[i];
+		}
+		return fallback;
+	}
+
+	/** Return the number of visits of the given position, or zero if it's missing. */
+	public int visits(long hash) {
+		final int bucket = bucket(hash);
+		for (int i=bucket; i<bucket+BUCKET_SIZE; ++i) {
+			if (visits[i] > 0 && keys[i] == hash) return visits[i];
+		}
+		return 0;
+	}
+
+	/** Return the number of entries. */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/** Return the number of non-empty entries. This takes time proportional to the capacity. */
+	public int size() {
+		int result = 0;
+		for (final int v : visits) {
+			if (v > 0) ++result;
+		}
+		return result;
+	}
+
+	/** Return the index of the first entry of the bucket for the given hash, using its upper bits. */
+	private int bucket(long hash) {
+		return (int) (hash >>> 32) & mask & -BUCKET_SIZE;
+	}
+
+	/** Return true if the entry {@code i} should rather be replaced than the entry {@code j}. */
+	private boolean isLessValuable(int i, int j) {
+		if (visits[i]==0 || visits[j]==0) return visits[i] < visits[j];
+		final boolean isOld1 = generations[i] != generation;
+		final boolean isOld2 = generations[j] != generation;
+		if (isOld1 != isOld2) return isOld1;
+		if (visits[i] != visits[j]) return visits[i] < visits[j];
+		return turns[i] > turns[j];
+	}
+
+	private static final int BUCKET_SIZE = 4;
+
+	private final int mask;
+	private byte generation;
+
+	/** The hash of the position. The arrays are indexed by entry, an entry is empty if its visits are zero. */
+	private final long[] keys;
+	private final int[] visits;
+	/** The sum of scores from the perspective of the player not on turn, like in {@link GameUctActor}. */
+	private final double[] sums;
+	/** The turn of the position, used as its depth. */
+	private final short[] turns;
+	/** The search which last used the entry. */
+	private final byte[] generations;
+}
@@ -0,0 +1,515 @@
+package maaartin.game.ai;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import maaartin.game.Game;
+import maaartin.game.GameAIParameters;
+import maaartin.game.GameActor;
+import maaartin.game.GameBoard;
+import maaartin.game.GameRandom;
+import maaartin.game.GameRolloutPolicy;
+
+/**
+ * An actor using UCT, i.e., a Monte Carlo tree search choosing the child to descend to via the UCB1 formula.
+ *
+ * <p>The nodes live in preallocated primitive arrays, with the children of every node stored contiguously.
+ * So a search allocates next to nothing and its memory is bounded by {@link GameAIParameters#maxNodes()}.
+ * When the pool gets exhausted, the tree stops growing, but the playouts go on.
+ *
+ * <p>The value of a node is the sum of the scores of the playouts through it,
+ * seen from the perspective of the player who made the move leading to it.
+ *
+ * <p>The search is also an MCTS-Solver: A node whose outcome is known gets a proven value. This happens for terminal nodes,
+ * for nodes having a child with a proven win for the player on turn, and for nodes whose children are all proven.
+ * The proofs get backed up minimax-style. Reaching a proven node yields its value without any playout,
+ * proven losses are never selected, and the search stops as soon as the root gets proven.
+ *
+ * <p>Unless disabled via {@link GameAIParameters#isReusingTree()}, the tree is kept between moves.
+ * When the next game is found within the first two levels of the tree, its subtree gets moved to the front of the pool
+ * and the search continues from there.
+ *
+ * <p>With {@link GameAIParameters#isUsingTranspositions()}, the mean scores of the children get taken
+ * from a {@link GameTranspositionTable}, where all paths leading to the same position pool their playouts.
+ * The exploration term still uses the visits of the node itself (this is known as UCT2).
+ *
+ * <p>Unless disabled via {@link GameAIParameters#raveEquivalence()}, every node also collects all-moves-as-first statistics
+ * (AMAF) of its move, counting all simulations through its parent, in which the same player played the same move later,
+ * in the tree or in the playout. The selection uses a blend of the two means (this is known as RAVE),
+ * moving from AMAF to the node's own mean as its visits grow. So the many children of a node get a sensible value
+ * after a few playouts, which makes small budgets much more effective, at the cost of slower iterations.
+ * Therefore, RAVE is off when {@link GameAIParameters#millisPerMove()} limits the search.
+ *
+ * <p>With {@link GameAIParameters#isPondering()}, the position after the returned move gets searched in the background
+ * until the next call, which then mostly finds the game in the tree.
+ */
+@RequiredArgsConstructor @NotThreadSafe public final class GameUctActor implements GameActor {
+	public GameUctActor() {
+		this(new GameAIParameters());
+	}
+
+	@Override public String selectMove(Game<?> game) {
+		return game.moveToString(selectMoveCode(game));
+	}
+
+	@Override public int selectMoveCode(Game<?> game) {
+		checkArgument(!game.isFinished());
+		checkArgument(game.nMoveCodes() <= Short.MAX_VALUE, "Too many move codes for packing into shorts");
+		ponderer.stop();
+		final long start = System.nanoTime();
+		final int nPlayouts = search(game, GameSearchLimit.start(parameters), parameters.budget());
+		final int best = bestChild();
+		final int result = best==NO_NODE ? GameRandomActor.randomMove(game, random) : moves[best];
+		final double bestMoveShare = best==NO_NODE ? 0 : (double) visits[best] / visits[ROOT];
+		GameSearchMonitor.report(new GameSearchMetrics(
+				getClass().getSimpleName(), game.turn(), nPlayouts, nNodes, maxDepth, bestMoveShare, System.nanoTime() - start));
+		final Game<?> next = game.play(result);
+		if (parameters.isPondering() && !next.isFinished()) ponderer.start(parameters, limit -> search(next, limit, MAX_PONDERING_PLAYOUTS));
+		return result;
+	}
+
+	@Override public void stopPondering() {
+		ponderer.stop();
+	}
+
+	/** Return true if the pondering search is running now. */
+	boolean isPondering() {
+		return ponderer.isRunning();
+	}
+
+	/** Wait for the pondering search to reach {@link GameAIParameters#nodeLimit()}. */
+	void awaitPondering() {
+		ponderer.await();
+	}
+
+	/** Run up to the given number of playouts from the game, reusing the tree if possible. Return the number of playouts run. */
+	private int search(Game<?> game, GameSearchLimit limit, int budget) {
+		allocate(parameters.maxNodes());
+		moveBuffer = new int[game.nMoveCodes()];
+		final int node = parameters.isReusingTree() ? find(game) : NO_NODE;
+		if (node == NO_NODE) {
+			nNodes = 1;
+			visits[ROOT] = 0;
+			sums[ROOT] = 0;
+			proven[ROOT] = UNPROVEN;
+			childCounts[ROOT] = UNEXPANDED;
+		} else if (node != ROOT) {
+			compact(node);
+		}
+		rootGame = game;
+		nMoveCodes = game.nMoveCodes();
+		if (marks.length != 2 * nMoveCodes) marks = new int[2 * nMoveCodes];
+		if (parameters.isUsingTranspositions()) {
+			if (table==null || table.capacity() < parameters.maxNodes()) table = new GameTranspositionTable(parameters.maxNodes());
+			table.nextGeneration();
+		} else {
+			table = null;
+		}
+		final int reusedNodes = nNodes;
+		final GameBoard<?> board = game.newBoard();
+		maxDepth = 0;
+		int result = 0;
+		while (result<budget && !isProven(ROOT) && !limit.isReached(nNodes - reusedNodes)) {
+			iterate(board, game);
+			++result;
+		}
+		return result;
+	}
+
+	/** Make sure that the node arrays have the given length, keeping them when they already do. */
+	private void allocate(int maxNodes) {
+		checkArgument(maxNodes > 0);
+		if (visits.length == maxNodes) return;
+		rootGame = null;
+		visits = new int[maxNodes];
+		sums = new double[maxNodes];
+		firstChildren = new int[maxNodes];
+		childCounts = new short[maxNodes];
+		moves = new short[maxNodes];
+		hashes = new long[maxNodes];
+		proven = new double[maxNodes];
+		raveVisits = new int[maxNodes];
+		raveSums = new double[maxNodes];
+	}
+
+	/** Return the node for the given game among the root, its children and grandchildren, or {@link #NO_NODE} if there's none. */
+	private int find(Game<?> game) {
+		if (rootGame==null) return NO_NODE;
+		if (isSame(rootGame, game)) return ROOT;
+		if (childCounts[ROOT] == UNEXPANDED) return NO_NODE;
+		for (int child=firstChildren[ROOT]; child<firstChildren[ROOT]+childCounts[ROOT]; ++child) {
+			final Game<?> childGame = rootGame.play(moves[child]);
+			if (isSame(childGame, game)) return child;
+			if (childCounts[child] == UNEXPANDED) continue;
+			for (int grandchild=firstChildren[child]; grandchild<firstChildren[child]+childCounts[child]; ++grandchild) {
+				if (isSame(childGame.play(moves[grandchild]), game)) return grandchild;
+			}
+		}
+		return NO_NODE;
+	}
+
+	private static boolean isSame(Game<?> game1, Game<?> game2) {
+		return game1.hash64() == game2.hash64() && game1.equals(game2);
+	}
+
+	/**
+	 * Copy the subtree of the given node to the spare arrays in breadth-first order, so that the node becomes the root,
+	 * and swap the arrays. This frees the space used by the rest of the tree.
+	 */
+	private void compact(int node) {
+		if (spareVisits.length != visits.length) {
+			spareVisits = new int[visits.length];
+			spareSums = new double[visits.length];
+			spareFirstChildren = new int[visits.length];
+			spareChildCounts = new short[visits.length];
+			spareMoves = new short[visits.length];
+			spareHashes = new long[visits.length];
+			spareProven = new double[visits.length];
+			spareRaveVisits = new int[visits.length];
+			spareRaveSums = new double[visits.length];
+		}
+		// Until the copy of a node gets processed, its first child holds the index of the original.
+		int size = 1;
+		spareFirstChildren[ROOT] = node;
+		for (int i=0; i<size; ++i) {
+			final int original = spareFirstChildren[i];
+			spareVisits[i] = visits[original];
+			spareSums[i] = sums[original];
+			spareChildCounts[i] = childCounts[original];
+			spareMoves[i] = moves[original];
+			spareHashes[i] = hashes[original];
+			spareProven[i] = proven[original];
+			spareRaveVisits[i] = raveVisits[original];
+			spareRaveSums[i] = raveSums[original];
+			if (childCounts[original] == UNEXPANDED) continue;
+			spareFirstChildren[i] = size;
+			for (int c=0; c<childCounts[original]; ++c) spareFirstChildren[size++] = firstChildren[original] + c;
+		}
+		nNodes = size;
+
+		final int[] oldVisits = visits;
+		visits = spareVisits;
+		spareVisits = oldVisits;
+		final double[] oldSums = sums;
+		sums = spareSums;
+		spareSums = oldSums;
+		final int[] oldFirstChildren = firstChildren;
+		firstChildren = spareFirstChildren;
+		spareFirstChildren = oldFirstChildren;
+		final short[] oldChildCounts = childCounts;
+		childCounts = spareChildCounts;
+		spareChildCounts = oldChildCounts;
+		final short[] oldMoves = moves;
+		moves = spareMoves;
+		spareMoves = oldMoves;
+		final long[] oldHashes = hashes;
+		hashes = spareHashes;
+		spareHashes = oldHashes;
+		final double[] oldProven = proven;
+		proven = spareProven;
+		spareProven = oldProven;
+		final int[] oldRaveVisits = raveVisits;
+		raveVisits = spareRaveVisits;
+		spareRaveVisits = oldRaveVisits;
+		final double[] oldRaveSums = raveSums;
+		raveSums = spareRaveSums;
+		spareRaveSums = oldRaveSums;
+	}
+
+	/**
+	 * Descend from the root, expand a leaf if possible, run a playout and update the nodes on the path.
+	 * When a proven node gets reached, use its value instead of the playout and try to prove its ancestors.
+	 */
+	private void iterate(GameBoard<?> board, Game<?> game) {
+		load(board, game);
+		int node = ROOT;
+		int depth = 0;
+		while (!board.isFinished() && !isProven(node)) {
+			if (childCounts[node] == UNEXPANDED && (visits[node] == 0 || !expand(node, board))) break;
+			if (depth+1 >= path.length) {
+				path = Arrays.copyOf(path, 2 * path.length);
+				signs = Arrays.copyOf(signs, path.length);
+			}
+			signs[depth] = board.playerOnTurn().ordinal() == 0 ? +1 : -1;
+			node = select(node);
+			board.make(moves[node]);
+			if (visits[node] == 0) hashes[node] = board.hash64();
+			path[++depth] = node;
+		}
+		if (depth > maxDepth) maxDepth = depth;
+		if (depth>0 && board.isFinished()) proven[node] = signs[depth-1] * board.score();
+		final boolean isRave = isRave();
+		nPlayoutMoves = 0;
+		final double score;
+		if (isProven(node)) {
+			score = signs[depth-1] * proven[node];
+		} else if (isRave) {
+			score = recordingPlayout(board);
+		} else {
+			score = parameters.rolloutPolicy().playout(board, random);
+		}
+		if (isRave) updateRave(depth, score);
+		++visits[ROOT];
+		for (int d=1; d<=depth; ++d) {
+			final int n = path[d];
+			++visits[n];
+			sums[n] += signs[d-1] * score;
+			if (table!=null) table.add(hashes[n], game.turn() + d, signs[d-1] * score);
+		}
+		if (!isProven(node)) return;
+		for (int d=depth-1; d>=0; --d) {
+			if (!prove(d==0 ? ROOT : path[d])) break;
+		}
+	}
+
+	/** Like {@link GameRolloutPolicy#playout(GameBoard, Random)}, but remember the moves in {@link #playoutMoves}. */
+	private double recordingPlayout(GameBoard<?> board) {
+		playoutBoard = board;
+		return parameters.rolloutPolicy().playout(board, random, moveRecorder);
+	}
+
+	/** Remember the move about to be made on {@link #playoutBoard}. */
+	private void recordMove(int move) {
+		if (nPlayoutMoves >= playoutMoves.length) playoutMoves = Arrays.copyOf(playoutMoves, 2 * playoutMoves.length);
+		playoutMoves[nPlayoutMoves++] = playoutBoard.playerOnTurn().ordinal() * nMoveCodes + move;
+	}
+
+	/**
+	 * Update the all-moves-as-first statistics of the children of the nodes on the path, whose move was played later
+	 * by the same player, either in the tree or in the playout. The moves get marked by the player and the move code,
+	 * going up from the end of the simulation.
+	 */
+	private void updateRave(int depth, double score) {
+		final int mark = ++markCount;
+		for (int i=0; i<nPlayoutMoves; ++i) marks[playoutMoves[i]] = mark;
+		for (int d=depth; d>=1; --d) {
+			final int playerOffset = signs[d-1] > 0 ? 0 : nMoveCodes;
+			marks[playerOffset + moves[path[d]]] = mark;
+			final int parent = d==1 ? ROOT : path[d-1];
+			final double value = signs[d-1] * score;
+			for (int child=firstChildren[parent]; child<firstChildren[parent]+childCounts[parent]; ++child) {
+				if (marks[playerOffset + moves[child]] != mark) continue;
+				++raveVisits[child];
+				raveSums[child] += value;
+			}
+		}
+	}
+
+	/** Try to prove the value of the given expanded node from its children. Return true on success. */
+	private boolean prove(int node) {
+		final int first = firstChildren[node];
+		boolean isComplete = true;
+		double best = Double.NEGATIVE_INFINITY;
+		for (int child=first; child<first+childCounts[node]; ++child) {
+			final double value = proven[child];
+			if (value == MAX_SCORE) {
+				proven[node] = -MAX_SCORE;
+				return true;
+			}
+			if (isProven(child)) {
+				best = Math.max(best, value);
+			} else {
+				isComplete = false;
+			}
+		}
+		if (!isComplete) return false;
+		proven[node] = -best;
+		return true;
+	}
+
+	/** Return true if RAVE is enabled and the search isn't limited by time, where it doesn't pay off. */
+	private boolean isRave() {
+		return parameters.raveEquivalence() > 0 && parameters.millisPerMove() == 0;
+	}
+
+	private boolean isProven(int node) {
+		return !Double.isNaN(proven[node]);
+	}
+
+	/**
+	 * Return the child with the best UCB1 value, using the exact values of the proven children and skipping proven losses.
+	 * An unvisited child gets returned immediately, unless it has all-moves-as-first statistics to be judged by.
+	 */
+	private int select(int node) {
+		final int first = firstChildren[node];
+		final int end = first + childCounts[node];
+		final double logVisits = Math.log(visits[node]);
+		final int raveEquivalence = isRave() ? parameters.raveEquivalence() : 0;
+		final double explorationWeight = raveEquivalence > 0 ? parameters.raveExplorationWeight() : parameters.explorationWeight();
+		int result = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child=first; child<end; ++child) {
+			if (proven[child] == -MAX_SCORE) continue;
+			final int n = visits[child];
+			final int raveN = raveEquivalence > 0 && !isProven(child) ? raveVisits[child] : 0;
+			if (n==0 && raveN==0) return child;
+			double mean = 0;
+			if (isProven(child)) {
+				mean = proven[child];
+			} else if (n>0) {
+				mean = table==null ? sums[child] / n : table.mean(hashes[child], sums[child] / n);
+			}
+			if (raveN > 0) {
+				// The weight of the all-moves-as-first mean decreases from 1 to 0 with the own visits, see Gelly and Silver (2011).
+				final double beta = raveN / (n + raveN + (double) n * raveN / raveEquivalence);
+				mean = (1-beta) * mean + beta * raveSums[child] / raveN;
+			}
+			final double value = mean + explorationWeight * Math.sqrt(logVisits / Math.max(n, 1));
+			if (value > bestValue) {
+				bestValue = value;
+				result = child;
+			}
+		}
+		return result;
+	}
+
+	/** Create the children of the given node, unless the pool is exhausted. Return true on success. */
+	private boolean expand(int node, GameBoard<?> board) {
+		final int length = board.moves(moveBuffer);
+		if (nNodes + length > visits.length) return false;
+		final int first = nNodes;
+		for (int i=0; i<length; ++i) {
+			final int child = first + i;
+			visits[child] = 0;
+			sums[child] = 0;
+			proven[child] = UNPROVEN;
+			raveVisits[child] = 0;
+			raveSums[child] = 0;
+			childCounts[child] = UNEXPANDED;
+			moves[child] = (short) moveBuffer[i];
+		}
+		firstChildren[node] = first;
+		childCounts[node] = (short) length;
+		nNodes += length;
+		return true;
+	}
+
+	/**
+	 * Return a child with a proven win if any, otherwise the most visited child of the root not being a proven loss if any,
+	 * otherwise the most visited one. Return {@link #NO_NODE} if there's no child.
+	 */
+	private int bestChild() {
+		if (childCounts[ROOT] == UNEXPANDED) return NO_NODE;
+		final int first = firstChildren[ROOT];
+		int result = NO_NODE;
+		int bestVisits = Integer.MIN_VALUE;
+		for (int child=first; child<first+childCounts[ROOT]; ++child) {
+			if (proven[child] == MAX_SCORE) return child;
+			final int n = proven[child] == -MAX_SCORE ? visits[child] - Integer.MAX_VALUE : visits[child];
+			if (n <= bestVisits) continue;
+			bestVisits = n;
+			result = child;
+		}
+		return result;
+	}
+
+	/** Return the visits of the node reached from the root by the given moves, or zero if it's not in the tree. */
+	int visits(String... path) {
+		Game<?> game = rootGame;
+		int node = ROOT;
+		for (final String move : path) {
+			final int code = game.parseMove(move);
+			node = child(node, code);
+			if (node == NO_NODE) return 0;
+			game = game.play(code);
+		}
+		return visits[node];
+	}
+
+	/** Return the child of the node reached by the given move, or {@link #NO_NODE} if there's none. */
+	private int child(int node, int move) {
+		if (childCounts[node] == UNEXPANDED) return NO_NODE;
+		for (int child=firstChildren[node]; child<firstChildren[node]+childCounts[node]; ++child) {
+			if (moves[child] == move) return child;
+		}
+		return NO_NODE;
+	}
+
+	/** Return the table of the statistics of positions, or null if not used. */
+	@Nullable GameTranspositionTable table() {
+		return table;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <G extends Game<G>> void load(GameBoard<G> board, Game<?> game) {
+		board.load((G) game);
+	}
+
+	private static final int ROOT = 0;
+	private static final int NO_NODE = -1;
+	/** The best possible score, see {@link Game#score()}. */
+	private static final double MAX_SCORE = 1;
+	private static final double UNPROVEN = Double.NaN;
+	private static final short UNEXPANDED = -1;
+	private static final int INITIAL_PATH_LENGTH = 128;
+	/** The budget of a background search, so that the visits can't overflow even when the opponent thinks forever. */
+	private static final int MAX_PONDERING_PLAYOUTS = 1 << 28;
+
+	@Getter private final GameAIParameters parameters;
+	private final GameRandom random = new GameRandom();
+	/** The background search, which is the only one accessing the fields below while running. */
+	private final GamePonderer ponderer = new GamePonderer();
+	/** The table of the statistics of positions, or null if not used. */
+	private GameTranspositionTable table;
+
+	/** The game of the root, or null if the tree isn't valid. */
+	private Game<?> rootGame;
+	/** The number of nodes in use. The node arrays below are indexed by node. */
+	private int nNodes;
+	private int[] visits = new int[0];
+	private double[] sums;
+	/** The index of the first child, valid only if the node has been expanded. */
+	private int[] firstChildren;
+	/** The number of children, or {@link #UNEXPANDED}. */
+	private short[] childCounts;
+	/** The code of the move leading to the node. */
+	private short[] moves;
+	/** The {@link Game#hash64()} of the node, valid only if it has been visited. */
+	private long[] hashes;
+	/** The exact value of the node from the same perspective as {@link #sums}, or {@link #UNPROVEN}. */
+	private double[] proven;
+
+	/** The all-moves-as-first statistics of the move leading to the node, from the same perspective as {@link #sums}. */
+	private int[] raveVisits;
+	private double[] raveSums;
+
+	/** Arrays of the same lengths as the above ones, used by {@link #compact(int)}, allocated when first needed. */
+	private int[] spareVisits = new int[0];
+	private double[] spareSums;
+	private int[] spareFirstChildren;
+	private short[] spareChildCounts;
+	private short[] spareMoves;
+	private long[] spareHashes;
+	private double[] spareProven;
+	private int[] spareRaveVisits;
+	private double[] spareRaveSums;
+
+	private int[] moveBuffer;
+	/** The maximum depth reached by the current search. */
+	private int maxDepth;
+	/** The nodes visited in the current iteration, indexed by depth. */
+	private int[] path = new int[INITIAL_PATH_LENGTH];
+	/** The sign of the player to move at the node of the same depth, +1 for the first player. */
+	private int[] signs = new int[INITIAL_PATH_LENGTH];
+
+	private int nMoveCodes;
+	/** The moves of the current playout, each one as {@code playerOrdinal * nMoveCodes + move}, used for RAVE only. */
+	private int[] playoutMoves = new int[INITIAL_PATH_LENGTH];
+	private int nPlayoutMoves;
+	/** The board of the current playout, see {@link #recordMove(int)}. */
+	private GameBoard<?> playoutBoard;
+	/** Created once, so that the playouts don't allocate. */
+	private final IntConsumer moveRecorder = this::recordMove;
+	/** Indexed like {@link #playoutMoves}, see {@link #updateRave(int, double)}. */
+	private int[] marks = new int[0];
+	/** The last value used in {@link #marks}, incremented instead of clearing them. */
+	private int markCount;
+}
@@ -0,0 +1,57 @@
+package maaartin.game.ai;
+
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+
+import maaartin.game.ultimatoe.Ultimatoe;
+import maaartin.game.ultimatoe.UltimatoeEvaluator;
+
+/**
+ * Measure the time to depth of the Lazy SMP in {@link GameAlphaBetaActor} on a fixed set of {@link Ultimatoe} positions.
+ *
+ * <p>The threads don't share the work explicitly, they only help each other via the table,
+ * so the ideal is a linear speedup, which is never reached.
+ */
+public final class _GameAlphaBetaActorBenchmark {
+	public static void main(String[] args) {
+		final int maxThreads = Runtime.getRuntime().availableProcessors();
+		final ImmutableList<Ultimatoe> positions = positions();
+		double baseline = 0;
+		for (int round=0; round<3; ++round) {
+			for (int nThreads=1; nThreads<=maxThreads; nThreads = nThreads<maxThreads ? Math.min(2*nThreads, maxThreads) : nThreads+1) {
+				final double seconds = benchmark(nThreads, positions);
+				if (nThreads==1) baseline = seconds;
+				System.out.format("%2d threads: %8.1f ms/position, speedup %.2f%n", nThreads, 1e3 * seconds / positions.size(), baseline / seconds);
+			}
+		}
+	}
+
+	/** Return the seconds needed for searching all positions to {@link #DEPTH}, each by a fresh actor. */
+	private static double benchmark(int nThreads, ImmutableList<Ultimatoe> positions) {
+		long nanos = 0;
+		for (final Ultimatoe game : positions) {
+			final GameAlphaBetaActor actor = new GameAlphaBetaActor(new UltimatoeEvaluator());
+			actor.parameters().maxSearchDepth(DEPTH).maxNodes(1 << 22).nThreads(nThreads);
+			final long start = System.nanoTime();
+			actor.selectMoveCode(game);
+			nanos += System.nanoTime() - start;
+		}
+		return 1e-9 * nanos;
+	}
+
+	/** Return some unfinished positions reached by random moves after the first few plies. */
+	private static ImmutableList<Ultimatoe> positions() {
+		final ImmutableList.Builder<Ultimatoe> result = ImmutableList.builder();
+		final Random random = new Random(214);
+		for (int i=0; i<N_POSITIONS; ++i) {
+			Ultimatoe game = Ultimatoe.INITIAL_GAME;
+			for (int ply=0; ply<5 + 2*i && !game.isFinished(); ++ply) game = game.play(random);
+			if (!game.isFinished()) result.add(game);
+		}
+		return result.build();
+	}
+
+	private static final int DEPTH = 10;
+	private static final int N_POSITIONS = 8;
+}
@@ -0,0 +1,64 @@
+package maaartin.game.ai;
+
+import static maaartin.game.ai._GameUctActorTest.checkDeadline;
+import static maaartin.game.ai._GameUctActorTest.game;
+import static maaartin.game.ai._GameUctActorTest.winnableGame;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.Lists;
+
+import maaartin.game.fivedown.Fivedown;
+
+public final class _GameAlphaBetaActorTest extends TestCase {
+	public void testSelectMove_WinningMove() {
+		final GameAlphaBetaActor actor = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		actor.parameters().maxSearchDepth(3);
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	public void testSelectMove_WinningMove_Parallel() {
+		final GameAlphaBetaActor actor = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		actor.parameters().maxSearchDepth(3).nThreads(3);
+		assertEquals("74", actor.selectMove(winnableGame()));
+		actor.parameters().nThreads(2);
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	public void testSelectMove_Solved() {
+		final GameAlphaBetaActor actor = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		actor.parameters().maxSearchDepth(50);
+		final List<GameSearchMetrics> reported = Lists.newArrayList();
+		final GameSearchListener listener = reported::add;
+		GameSearchMonitor.addListener(listener);
+		try {
+			assertEquals("74", actor.selectMove(winnableGame()));
+		} finally {
+			GameSearchMonitor.removeListener(listener);
+		}
+		assertEquals(1, reported.get(0).maxDepth());
+	}
+
+	public void testSelectMove_Deadline() {
+		final GameAlphaBetaActor actor = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		actor.parameters().maxSearchDepth(50).millisPerMove(100);
+		checkDeadline(actor, actor.parameters());
+	}
+
+	public void testSelectMove_Deadline_Parallel() {
+		final GameAlphaBetaActor actor = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		actor.parameters().maxSearchDepth(50).millisPerMove(100).nThreads(3);
+		checkDeadline(actor, actor.parameters());
+	}
+
+	public void testSelectMove_Deterministic() {
+		final GameAlphaBetaActor actor1 = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		final GameAlphaBetaActor actor2 = new GameAlphaBetaActor(GameEvaluator.NEUTRAL);
+		actor1.parameters().maxSearchDepth(2);
+		actor2.parameters().maxSearchDepth(2);
+		final Fivedown game = game("70", "7E");
+		assertEquals(actor1.selectMove(game), actor2.selectMove(game));
+	}
+}
@@ -0,0 +1,41 @@
+package maaartin.game.ai;
+
+import junit.framework.TestCase;
+
+public final class _GameAlphaBetaTableTest extends TestCase {
+	public void testStoreAndProbe() {
+		final GameAlphaBetaTable table = new GameAlphaBetaTable(1000);
+		assertEquals(1024, table.capacity());
+		assertEquals(GameAlphaBetaTable.NONE, table.probe(42));
+		table.store(42, 5, GameAlphaBetaTable.LOWER, -123456, 80);
+		final long entry = table.probe(42);
+		assertEquals(-123456, GameAlphaBetaTable.value(entry));
+		assertEquals(5, GameAlphaBetaTable.depth(entry));
+		assertEquals(GameAlphaBetaTable.LOWER, GameAlphaBetaTable.bound(entry));
+		assertEquals(80, GameAlphaBetaTable.move(entry));
+		assertEquals(1, table.size());
+	}
+
+	public void testStore_NoMove() {
+		final GameAlphaBetaTable table = new GameAlphaBetaTable(16);
+		table.store(42, 0, GameAlphaBetaTable.EXACT, 0, GameAlphaBetaActor.NO_MOVE);
+		assertEquals(GameAlphaBetaActor.NO_MOVE, GameAlphaBetaTable.move(table.probe(42)));
+	}
+
+	public void testStore_DepthPreferred() {
+		final GameAlphaBetaTable table = new GameAlphaBetaTable(16);
+		// All these hashes share the same bucket.
+		table.store(1, 9, GameAlphaBetaTable.EXACT, 1, 1);
+		table.store(2, 1, GameAlphaBetaTable.EXACT, 2, 2);
+		table.store(3, 1, GameAlphaBetaTable.EXACT, 3, 3);
+		assertEquals(1, GameAlphaBetaTable.value(table.probe(1)));
+		assertEquals(GameAlphaBetaTable.NONE, table.probe(2));
+		assertEquals(3, GameAlphaBetaTable.value(table.probe(3)));
+		assertEquals(2, table.size());
+
+		table.nextGeneration();
+		table.store(4, 1, GameAlphaBetaTable.EXACT, 4, 4);
+		assertEquals(GameAlphaBetaTable.NONE, table.probe(1));
+		assertEquals(4, GameAlphaBetaTable.value(table.probe(4)));
+	}
+}
@@ -0,0 +1,29 @@
+package maaartin.game.ai;
+
+import junit.framework.TestCase;
+
+public final class _GameHyperLogLogTest extends TestCase {
+	public void testEstimate_Small() {
+		final GameHyperLogLog estimator = new GameHyperLogLog();
+		assertEquals(0, estimator.estimate());
+		for (int i=0; i<3; ++i) {
+			for (long hash=1; hash<=100; ++hash) estimator.add(hash);
+		}
+		assertEquals(100, estimator.estimate(), 5);
+	}
+
+	public void testEstimate_Large() {
+		final GameHyperLogLog estimator = new GameHyperLogLog();
+		for (int i=0; i<2; ++i) {
+			for (long hash=0; hash<1_000_000; ++hash) estimator.add(hash << 20);
+		}
+		assertEquals(1_000_000, estimator.estimate(), 100_000);
+	}
+
+	public void testClear() {
+		final GameHyperLogLog estimator = new GameHyperLogLog();
+		for (long hash=0; hash<1000; ++hash) estimator.add(hash);
+		estimator.clear();
+		assertEquals(0, estimator.estimate());
+	}
+}
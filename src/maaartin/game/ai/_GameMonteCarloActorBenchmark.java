@@ -0,0 +1,33 @@
+package maaartin.game.ai;
+
+import maaartin.game.ultimatoe.Ultimatoe;
+
+/**
+ * Measure the scaling of the root-parallel search on {@link Ultimatoe#INITIAL_GAME}.
+ *
+ * <p>Each thread runs a full search, so the ideal is a constant time per move and a linear growth of the playouts/s.
+ */
+public final class _GameMonteCarloActorBenchmark {
+	public static void main(String[] args) {
+		final int maxThreads = Runtime.getRuntime().availableProcessors();
+		for (int round=0; round<3; ++round) {
+			for (int nThreads=1; nThreads<=maxThreads; nThreads = nThreads<maxThreads ? Math.min(2*nThreads, maxThreads) : nThreads+1) {
+				benchmark(nThreads);
+			}
+		}
+	}
+
+	private static void benchmark(int nThreads) {
+		final GameMonteCarloActor actor = new GameMonteCarloActor();
+		actor.parameters().budget(BUDGET);
+		actor.parameters().nThreads(nThreads);
+		actor.selectMoveCode(Ultimatoe.INITIAL_GAME); // warmup
+		final long start = System.nanoTime();
+		for (int i=0; i<N_MOVES; ++i) actor.selectMoveCode(Ultimatoe.INITIAL_GAME);
+		final double seconds = 1e-9 * (System.nanoTime() - start);
+		System.out.format("%2d threads: %8.1f ms/move %10.0f playouts/s%n", nThreads, 1e3 * seconds / N_MOVES, (double) N_MOVES * nThreads * BUDGET / seconds);
+	}
+
+	private static final int BUDGET = 20_000;
+	private static final int N_MOVES = 10;
+}
@@ -0,0 +1,27 @@
+package maaartin.game.ai;
+
+import static maaartin.game.ai._GameUctActorTest.checkDeadline;
+import static maaartin.game.ai._GameUctActorTest.winnableGame;
+
+import junit.framework.TestCase;
+
+public final class _GameMonteCarloActorTest extends TestCase {
+	public void testSelectMove_WinningMove() {
+		final GameMonteCarloActor actor = new GameMonteCarloActor();
+		actor.parameters().budget(2000);
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	public void testSelectMove_WinningMove_Parallel() {
+		final GameMonteCarloActor actor = new GameMonteCarloActor();
+		actor.parameters().budget(2000);
+		actor.parameters().nThreads(3);
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	public void testSelectMove_Deadline() {
+		final GameMonteCarloActor actor = new GameMonteCarloActor();
+		actor.parameters().budget(Integer.MAX_VALUE).millisPerMove(100);
+		checkDeadline(actor, actor.parameters());
+	}
+}
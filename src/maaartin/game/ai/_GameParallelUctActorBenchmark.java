@@ -0,0 +1,42 @@
+package maaartin.game.ai;
+
+import maaartin.game.ultimatoe.Ultimatoe;
+
+/**
+ * Measure the scaling of the tree-parallel search on {@link Ultimatoe#INITIAL_GAME}.
+ *
+ * <p>The budget is shared by the threads, so the ideal is a linear growth of the playouts/s.
+ * The nodes/s get computed from the reported {@link GameSearchMetrics#treeSize()}, as an expansion adds all children at once.
+ */
+public final class _GameParallelUctActorBenchmark {
+	public static void main(String[] args) {
+		final int maxThreads = Runtime.getRuntime().availableProcessors();
+		for (int round=0; round<3; ++round) {
+			for (int nThreads=1; nThreads<=maxThreads; nThreads = nThreads<maxThreads ? Math.min(2*nThreads, maxThreads) : nThreads+1) {
+				benchmark(nThreads);
+			}
+		}
+	}
+
+	private static void benchmark(int nThreads) {
+		final GameParallelUctActor actor = new GameParallelUctActor();
+		actor.parameters().budget(BUDGET);
+		actor.parameters().nThreads(nThreads);
+		actor.selectMoveCode(Ultimatoe.INITIAL_GAME); // warmup
+		final long[] nNodes = new long[1];
+		final GameSearchListener listener = metrics -> nNodes[0] += metrics.treeSize();
+		GameSearchMonitor.addListener(listener);
+		final long start = System.nanoTime();
+		try {
+			for (int i=0; i<N_MOVES; ++i) actor.selectMoveCode(Ultimatoe.INITIAL_GAME);
+		} finally {
+			GameSearchMonitor.removeListener(listener);
+		}
+		final double seconds = 1e-9 * (System.nanoTime() - start);
+		System.out.format("%2d threads: %8.1f ms/move %10.0f playouts/s %10.0f nodes/s%n",
+				nThreads, 1e3 * seconds / N_MOVES, N_MOVES * BUDGET / seconds, nNodes[0] / seconds);
+	}
+
+	private static final int BUDGET = 200_000;
+	private static final int N_MOVES = 5;
+}
@@ -0,0 +1,51 @@
+package maaartin.game.ai;
+
+import static maaartin.game.ai._GameUctActorTest.checkDeadline;
+import static maaartin.game.ai._GameUctActorTest.search;
+import static maaartin.game.ai._GameUctActorTest.winnableGame;
+
+import junit.framework.TestCase;
+
+import maaartin.game.ultimatoe.Ultimatoe;
+
+public final class _GameParallelUctActorTest extends TestCase {
+	public void testSelectMove_WinningMove() {
+		final GameParallelUctActor actor = new GameParallelUctActor();
+		actor.parameters().budget(2000);
+		actor.parameters().nThreads(3);
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	public void testSelectMove_Deadline() {
+		final GameParallelUctActor actor = new GameParallelUctActor();
+		actor.parameters().budget(Integer.MAX_VALUE).millisPerMove(100).nThreads(3);
+		checkDeadline(actor, actor.parameters());
+	}
+
+	public void testSelectMove_ConsistentVisits() {
+		final GameParallelUctActor actor = new GameParallelUctActor();
+		actor.parameters().budget(20_000).nThreads(4);
+		final GameSearchMetrics metrics = search(actor, Ultimatoe.INITIAL_GAME);
+		assertEquals(20_000, metrics.playouts());
+		final int[] visits = actor.rootVisits();
+		// Every playout visits the root exactly once and no visit gets lost by the concurrent updates.
+		assertEquals(metrics.playouts(), visits[0]);
+		int childVisits = 0;
+		for (int i=1; i<visits.length; ++i) childVisits += visits[i];
+		// Only the playouts run before the root got expanded miss its children, at most one per thread.
+		assertTrue(childVisits <= visits[0]);
+		assertTrue(childVisits >= visits[0] - 4);
+	}
+
+	public void testSelectMove_Exhausted() {
+		final GameParallelUctActor actor = new GameParallelUctActor();
+		actor.parameters().budget(5000).nThreads(3).maxNodes(100);
+		final GameSearchMetrics metrics = search(actor, Ultimatoe.INITIAL_GAME);
+		// The playouts go on after the pool gets exhausted.
+		assertEquals(5000, metrics.playouts());
+		assertEquals(5000, actor.rootVisits()[0]);
+		assertTrue(metrics.treeSize() <= 100);
+		// All moves are possible initially and the root fits into the pool.
+		assertEquals(1 + Ultimatoe.INITIAL_GAME.nMoveCodes(), actor.rootVisits().length);
+	}
+}
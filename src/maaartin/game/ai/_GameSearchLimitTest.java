@@ -0,0 +1,55 @@
+package maaartin.game.ai;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+import maaartin.game.GameAIParameters;
+
+public final class _GameSearchLimitTest extends TestCase {
+	public void testIsReached_Unlimited() {
+		final GameSearchLimit limit = GameSearchLimit.start(new GameAIParameters());
+		for (int i=0; i<1000; ++i) assertFalse(limit.isReached(i));
+	}
+
+	public void testIsReached_NodeLimit() {
+		final GameSearchLimit limit = GameSearchLimit.start(new GameAIParameters().nodeLimit(10));
+		assertFalse(limit.isReached(9));
+		assertTrue(limit.isReached(10));
+		assertTrue(limit.isReached(0));
+		assertTrue(limit.copy().isReached(0));
+	}
+
+	public void testIsReached_Deadline() throws InterruptedException {
+		final GameSearchLimit limit = GameSearchLimit.start(new GameAIParameters().millisPerMove(20));
+		for (int i=0; i<1000; ++i) assertFalse(limit.isReached(0));
+		final GameSearchLimit copy = limit.copy();
+		Thread.sleep(30);
+		boolean isReached = false;
+		for (int i=0; i<1000 && !isReached; ++i) isReached = limit.isReached(0);
+		assertTrue(isReached);
+		isReached = false;
+		for (int i=0; i<1000 && !isReached; ++i) isReached = copy.isReached(0);
+		assertTrue(isReached);
+	}
+
+	public void testIsReached_StopRequest() {
+		final AtomicBoolean stopRequest = new AtomicBoolean();
+		final GameSearchLimit limit = GameSearchLimit.untilStopped(new GameAIParameters().millisPerMove(1), stopRequest);
+		for (int i=0; i<1000; ++i) assertFalse(limit.isReached(0));
+		stopRequest.set(true);
+		boolean isReached = false;
+		for (int i=0; i<1000 && !isReached; ++i) isReached = limit.isReached(0);
+		assertTrue(isReached);
+	}
+
+	public void testIsReached_DeadlineOrStopRequest() {
+		final AtomicBoolean stopRequest = new AtomicBoolean();
+		final GameSearchLimit limit = GameSearchLimit.start(new GameAIParameters().millisPerMove(10_000), stopRequest);
+		for (int i=0; i<1000; ++i) assertFalse(limit.isReached(0));
+		stopRequest.set(true);
+		boolean isReached = false;
+		for (int i=0; i<1000 && !isReached; ++i) isReached = limit.isReached(0);
+		assertTrue(isReached);
+	}
+}
@@ -0,0 +1,65 @@
+package maaartin.game.ai;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.Lists;
+
+import maaartin.game.GameActor;
+import maaartin.game.ultimatoe.Ultimatoe;
+
+public final class _GameSearchMonitorTest extends TestCase {
+	public void testReport_Uct() {
+		checkReport(new GameUctActor(), 1);
+	}
+
+	public void testReport_ParallelUct() {
+		final GameParallelUctActor actor = new GameParallelUctActor();
+		actor.parameters().nThreads(3);
+		checkReport(actor, 1);
+	}
+
+	public void testReport_MonteCarlo() {
+		checkReport(new GameMonteCarloActor(), 1);
+	}
+
+	public void testReport_MonteCarlo_Parallel() {
+		final GameMonteCarloActor actor = new GameMonteCarloActor();
+		actor.parameters().nThreads(3);
+		checkReport(actor, 3);
+	}
+
+	public void testMXBean() throws JMException {
+		final long searchCount = GameSearchMonitor.instance().getSearchCount();
+		new GameUctActor().selectMoveCode(Ultimatoe.INITIAL_GAME);
+		final Object attribute = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(GameSearchMonitor.OBJECT_NAME), "SearchCount");
+		assertTrue(((Long) attribute).longValue() > searchCount);
+	}
+
+	/** Check the metrics of a search of the initial game, where each of the given number of trees uses the whole budget. */
+	private void checkReport(GameActor actor, int nTrees) {
+		actor.parameters().budget(500);
+		final List<GameSearchMetrics> reported = Lists.newArrayList();
+		final GameSearchListener listener = reported::add;
+		GameSearchMonitor.addListener(listener);
+		try {
+			actor.selectMoveCode(Ultimatoe.INITIAL_GAME);
+		} finally {
+			GameSearchMonitor.removeListener(listener);
+		}
+		assertEquals(1, reported.size());
+		final GameSearchMetrics metrics = reported.get(0);
+		assertEquals(actor.getClass().getSimpleName(), metrics.actor());
+		assertEquals(0, metrics.turn());
+		assertEquals(nTrees * 500, metrics.playouts(), nTrees);
+		assertTrue(metrics.treeSize() > Ultimatoe.INITIAL_GAME.nMoveCodes());
+		assertTrue(metrics.maxDepth() >= 1);
+		assertTrue(metrics.bestMoveShare() > 0 && metrics.bestMoveShare() <= 1);
+		assertTrue(metrics.elapsedNanos() > 0);
+	}
+}
@@ -0,0 +1,57 @@
+package maaartin.game.ai;
+
+import junit.framework.TestCase;
+
+public final class _GameTranspositionTableTest extends TestCase {
+	public void testCapacity() {
+		assertEquals(4, new GameTranspositionTable(1).capacity());
+		assertEquals(1024, new GameTranspositionTable(1000).capacity());
+		assertEquals(1024, new GameTranspositionTable(1024).capacity());
+	}
+
+	public void testAdd() {
+		final GameTranspositionTable table = new GameTranspositionTable(100);
+		table.add(123, 0, +1);
+		table.add(123, 0, 0);
+		table.add(-123, 0, -1);
+		assertEquals(2, table.visits(123));
+		assertEquals(0.5, table.mean(123, 9));
+		assertEquals(1, table.visits(-123));
+		assertEquals(-1.0, table.mean(-123, 9));
+		assertEquals(0, table.visits(456));
+		assertEquals(9.0, table.mean(456, 9));
+		assertEquals(2, table.size());
+	}
+
+	/** With the minimum capacity, there's a single bucket, so that all keys collide. */
+	public void testReplacement_FewestVisits() {
+		final GameTranspositionTable table = new GameTranspositionTable(1);
+		for (int key=1; key<=4; ++key) {
+			for (int i=0; i<5-key; ++i) table.add(key, 0, 0);
+		}
+		table.add(5, 0, 0);
+		assertEquals(0, table.visits(4));
+		for (int key=1; key<=3; ++key) assertEquals(5-key, table.visits(key));
+		assertEquals(1, table.visits(5));
+	}
+
+	public void testReplacement_OldGeneration() {
+		final GameTranspositionTable table = new GameTranspositionTable(1);
+		for (int key=1; key<=4; ++key) {
+			for (int i=0; i<key; ++i) table.add(key, 0, 0);
+		}
+		table.nextGeneration();
+		for (int key=1; key<=3; ++key) table.add(key, 0, 0);
+		table.add(5, 0, 0);
+		assertEquals(0, table.visits(4));
+		assertEquals(1, table.visits(5));
+	}
+
+	public void testReplacement_Deepest() {
+		final GameTranspositionTable table = new GameTranspositionTable(1);
+		for (int key=1; key<=4; ++key) table.add(key, 10 + (key==2 ? 5 : 0), 0);
+		table.add(5, 0, 0);
+		assertEquals(0, table.visits(2));
+		assertEquals(4, table.size());
+	}
+}
@@ -0,0 +1,194 @@
+package maaartin.game.ai;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import maaartin.game.Game;
+import maaartin.game.GameAIParameters;
+import maaartin.game.GameActor;
+import maaartin.game.fivedown.Fivedown;
+import maaartin.game.ultimatoe.Ultimatoe;
+
+public final class _GameUctActorTest extends TestCase {
+	public void testSelectMove_WinningMove() {
+		final GameUctActor actor = new GameUctActor();
+		actor.parameters().budget(2000);
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	public void testSelectMove_ProvenWin() {
+		final GameUctActor actor = new GameUctActor();
+		// The deadline only stops a search failing to prove the win, which would otherwise run forever.
+		actor.parameters().budget(Integer.MAX_VALUE).millisPerMove(10_000);
+		// The first player has an open three, so that making it an open four wins in three plies whatever the reply.
+		final Fivedown game = game("73", "7E", "74", "7D", "72", "7C");
+		final List<GameSearchMetrics> reported = Lists.newArrayList();
+		final GameSearchListener listener = reported::add;
+		GameSearchMonitor.addListener(listener);
+		final String move;
+		try {
+			move = actor.selectMove(game);
+		} finally {
+			GameSearchMonitor.removeListener(listener);
+		}
+		assertTrue(move, ImmutableSet.of("71", "75").contains(move));
+		// The proof takes some tens of thousands of playouts, while running until the deadline would take about a million.
+		assertTrue(reported.get(0).playouts() < 100_000);
+	}
+
+	public void testSelectMove_WinningMove_Transpositions() {
+		final GameUctActor actor = new GameUctActor();
+		actor.parameters().budget(2000).isUsingTranspositions(true);
+		assertEquals("74", actor.selectMove(winnableGame()));
+		actor.selectMove(game("70", "7E", "71", "7D", "72", "7C"));
+		assertEquals("74", actor.selectMove(winnableGame()));
+	}
+
+	/** Check that the two paths reaching the same position pool their visits, i.e., the first player's moves swapped. */
+	public void testSelectMove_Transpositions() {
+		final GameUctActor actor = new GameUctActor();
+		actor.parameters().budget(20_000).isUsingTranspositions(true);
+		final Fivedown game = Fivedown.INITIAL_GAME;
+		actor.selectMove(game);
+		String[] best = null;
+		int bestVisits = 0;
+		for (final Map.Entry<Fivedown, String> e1 : game.children().entrySet()) {
+			for (final Map.Entry<Fivedown, String> e2 : e1.getKey().children().entrySet()) {
+				for (final Map.Entry<Fivedown, String> e3 : e2.getKey().children().entrySet()) {
+					final String[] path = {e1.getValue(), e2.getValue(), e3.getValue()};
+					final String[] swappedPath = {e3.getValue(), e2.getValue(), e1.getValue()};
+					if (!e3.getKey().equals(play(game, swappedPath))) continue;
+					final int visits = Math.min(actor.visits(path), actor.visits(swappedPath));
+					if (visits <= bestVisits) continue;
+					bestVisits = visits;
+					best = path;
+				}
+			}
+		}
+		assertNotNull(best);
+		final String[] swappedBest = {best[2], best[1], best[0]};
+		final int pooledVisits = actor.table().visits(play(game, best).hash64());
+		assertEquals(actor.visits(best) + actor.visits(swappedBest), pooledVisits);
+		assertTrue(pooledVisits > Math.max(actor.visits(best), actor.visits(swappedBest)));
+	}
+
+	/** Return the game after the moves, or null if any of them is illegal. */
+	@Nullable private static Fivedown play(Fivedown game, String... moves) {
+		Fivedown result = game;
+		for (final String move : moves) {
+			result = result.children().inverse().get(move);
+			if (result==null) return null;
+		}
+		return result;
+	}
+
+	public void testSelectMove_WinningMove_Rave() {
+		final Fivedown game = winnableGame();
+		// With fewer playouts than moves, plain UCT tries the moves one by one and never gets to the winning one,
+		// while RAVE learns its value from the playouts playing it later.
+		final int budget = 100;
+		assertTrue(budget < game.children().size());
+		final GameUctActor actor = new GameUctActor();
+		actor.parameters().budget(budget);
+		assertEquals("74", actor.selectMove(game));
+		final GameUctActor plainActor = new GameUctActor();
+		plainActor.parameters().budget(budget).raveEquivalence(0);
+		assertFalse("74".equals(plainActor.selectMove(game)));
+	}
+
+	public void testSelectMove_ReusedTree() {
+		final GameUctActor actor = new GameUctActor();
+		actor.parameters().budget(10_000);
+		final Ultimatoe game = Ultimatoe.INITIAL_GAME.play("11");
+		final Ultimatoe next = game.play(actor.selectMove(game));
+		// The actor's own move is the most visited child, so a large part of its tree gets reused.
+		actor.parameters().budget(2000);
+		final GameSearchMetrics reused = search(actor, next);
+		final GameUctActor freshActor = new GameUctActor();
+		freshActor.parameters().budget(2000).isReusingTree(false);
+		final GameSearchMetrics fresh = search(freshActor, next);
+		assertEquals(2000, reused.playouts());
+		assertTrue(2 * reused.treeSize() > 3 * fresh.treeSize());
+		assertEquals("74", actor.selectMove(winnableGame()));
+		actor.selectMove(Fivedown.INITIAL_GAME);
+	}
+
+	public void testSelectMove_Pondering() {
+		final GameUctActor actor = new GameUctActor();
+		// The node limit makes pondering finish on its own, so that the test doesn't depend on timing.
+		// Without RAVE, pondering spreads over all replies, so that a large subtree gets reused whatever the opponent plays.
+		actor.parameters().budget(200).nodeLimit(100_000).isPondering(true).raveEquivalence(0);
+		final Ultimatoe game = Ultimatoe.INITIAL_GAME.play("11");
+		final Ultimatoe next = game.play(actor.selectMove(game));
+		assertTrue(actor.isPondering());
+		final GameUctActor opponent = new GameUctActor();
+		opponent.parameters().budget(1000);
+		final Ultimatoe reply = next.play(opponent.selectMove(next));
+		actor.awaitPondering();
+		assertFalse(actor.isPondering());
+		final GameSearchMetrics pondered = search(actor, reply);
+		final GameUctActor freshActor = new GameUctActor();
+		freshActor.parameters().budget(200).isReusingTree(false).raveEquivalence(0);
+		final GameSearchMetrics fresh = search(freshActor, reply);
+		assertEquals(200, pondered.playouts());
+		assertTrue(2 * pondered.treeSize() > 3 * fresh.treeSize());
+		assertTrue(actor.isPondering());
+		actor.stopPondering();
+		assertFalse(actor.isPondering());
+		actor.stopPondering();
+		assertFalse(actor.isPondering());
+	}
+
+	public void testSelectMove_Deadline() {
+		final GameUctActor actor = new GameUctActor();
+		actor.parameters().budget(Integer.MAX_VALUE).millisPerMove(100);
+		checkDeadline(actor, actor.parameters());
+	}
+
+	/**
+	 * Check that the actor returns a legal move soon after the deadline, even when the budget would take forever.
+	 * Shared by the tests of the other actors.
+	 */
+	static void checkDeadline(GameActor actor, GameAIParameters parameters) {
+		final Fivedown game = Fivedown.INITIAL_GAME;
+		final long start = System.nanoTime();
+		final int move = actor.selectMoveCode(game);
+		final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(millis >= parameters.millisPerMove());
+		assertTrue(millis < 10 * parameters.millisPerMove());
+		assertNotNull(game.play(move));
+	}
+
+	/** Return the metrics reported by a search of the game, checking that it returns a legal move. */
+	static GameSearchMetrics search(GameActor actor, Game<?> game) {
+		final List<GameSearchMetrics> reported = Lists.newArrayList();
+		final GameSearchListener listener = reported::add;
+		GameSearchMonitor.addListener(listener);
+		try {
+			assertNotNull(game.play(actor.selectMoveCode(game)));
+		} finally {
+			GameSearchMonitor.removeListener(listener);
+		}
+		assertEquals(1, reported.size());
+		return reported.get(0);
+	}
+
+	/** Return a game where the first player wins by playing "74". */
+	static Fivedown winnableGame() {
+		return game("70", "7E", "71", "7D", "72", "7C", "73", "7B");
+	}
+
+	static Fivedown game(String... moves) {
+		Fivedown result = Fivedown.INITIAL_GAME;
+		for (final String move : moves) result = result.play(move);
+		return result;
+	}
+}
@@ -0,0 +1,120 @@
+package maaartin.game.ai.book;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.Ordering;
+
+/**
+ * An opening book stored in a file, which gets memory-mapped, so that opening it is cheap and only the pages used get loaded.
+ *
+ * <p>The file consists of a header of {@value #HEADER_LENGTH} bytes (the magic number, the number of records and their length)
+ * followed by the records of {@value #RECORD_LENGTH} bytes each, sorted by their key, see {@link GameBookEntry}.
+ * A lookup is a binary search over the records. The positions are keyed by their canonical hash,
+ * so that a single record serves all equivalent positions.
+ */
+@ThreadSafe public final class GameBook {
+	private GameBook(ByteBuffer buffer) {
+		checkArgument(buffer.limit() >= HEADER_LENGTH, "Too short");
+		checkArgument(buffer.getLong(0) == MAGIC, "Not a book");
+		checkArgument(buffer.getInt(Long.BYTES + Integer.BYTES) == RECORD_LENGTH, "Unsupported record length");
+		size = buffer.getInt(Long.BYTES);
+		checkArgument(size >= 0 && buffer.limit() == HEADER_LENGTH + (long) size * RECORD_LENGTH, "Wrong length");
+		this.buffer = buffer;
+	}
+
+	/** Map the given book file into memory. The file must not be modified while the book is in use. */
+	public static GameBook open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			checkArgument(channel.size() <= Integer.MAX_VALUE, "Too big");
+			// The mapping stays valid after the channel gets closed.
+			return new GameBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Write the entries into a new book file, replacing the given one atomically.
+	 *
+	 * @throws IllegalArgumentException if there are entries with the same key
+	 */
+	public static void write(Path path, List<GameBookEntry> entries) throws IOException {
+		final List<GameBookEntry> sorted = Ordering.from(Comparator.comparingLong(GameBookEntry::key)).sortedCopy(entries);
+		for (int i=1; i<sorted.size(); ++i) checkArgument(sorted.get(i-1).key() != sorted.get(i).key(), "Duplicate key");
+		final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeLong(MAGIC);
+			out.writeInt(sorted.size());
+			out.writeInt(RECORD_LENGTH);
+			for (final GameBookEntry e : sorted) {
+				out.writeLong(e.key());
+				out.writeLong(e.child());
+				out.writeInt(e.frequency());
+			}
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/** Return the number of records. */
+	public int size() {
+		return size;
+	}
+
+	/** Return the canonical hash of the position to play into from the position with the given canonical hash, if any. */
+	public OptionalLong lookup(long key) {
+		final int index = indexOf(key);
+		return index<0 ? OptionalLong.empty() : OptionalLong.of(buffer.getLong(offset(index) + CHILD_OFFSET));
+	}
+
+	/** Return the frequency stored for the given canonical hash, or zero if it's missing. */
+	public int frequency(long key) {
+		final int index = indexOf(key);
+		return index<0 ? 0 : buffer.getInt(offset(index) + FREQUENCY_OFFSET);
+	}
+
+	/** Return the index of the record with the given key, or -1 if there's none. */
+	private int indexOf(long key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final long midKey = buffer.getLong(offset(mid));
+			if (midKey < key) {
+				low = mid + 1;
+			} else if (midKey > key) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private static int offset(int index) {
+		return HEADER_LENGTH + index * RECORD_LENGTH;
+	}
+
+	/** The string "GAMEBOOK" in ASCII. */
+	private static final long MAGIC = 0x47414D45424F4F4BL;
+	private static final int HEADER_LENGTH = Long.BYTES + 2 * Integer.BYTES;
+	private static final int RECORD_LENGTH = 2 * Long.BYTES + Integer.BYTES;
+	private static final int CHILD_OFFSET = Long.BYTES;
+	private static final int FREQUENCY_OFFSET = 2 * Long.BYTES;
+
+	/** The whole file. Only the absolute get methods get used, so that concurrent access is fine. */
+	private final ByteBuffer buffer;
+	private final int size;
+}
@@ -0,0 +1,61 @@
+package maaartin.game.ai.book;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.OptionalLong;
+
+import maaartin.game.Game;
+import maaartin.game.GameAIParameters;
+import maaartin.game.GameActor;
+
+/**
+ * An actor playing the moves stored in a {@link GameBook} and delegating to another actor when the position is missing.
+ *
+ * <p>The book stores the canonical hash of the position to play into, instead of the move itself. So the move gets found by trying
+ * all moves, which is cheap compared to any search and works for all positions equivalent under the symmetries of the game.
+ */
+public final class GameBookActor implements GameActor {
+	public GameBookActor(GameBook book, GameActor fallback) {
+		this.book = checkNotNull(book);
+		this.fallback = checkNotNull(fallback);
+	}
+
+	@Override public String selectMove(Game<?> game) {
+		return game.moveToString(selectMoveCode(game));
+	}
+
+	@Override public int selectMoveCode(Game<?> game) {
+		final int result = bookMove(game);
+		if (result == NO_MOVE) return fallback.selectMoveCode(game);
+		// The fallback may be pondering from its last move, which is pointless now.
+		fallback.stopPondering();
+		return result;
+	}
+
+	/** Return the parameters of the fallback actor. */
+	@Override public GameAIParameters parameters() {
+		return fallback.parameters();
+	}
+
+	@Override public void stopPondering() {
+		fallback.stopPondering();
+	}
+
+	/** Return the code of a move leading to the position stored in the book, or {@link #NO_MOVE} if there's none. */
+	int bookMove(Game<?> game) {
+		if (game.isFinished()) return NO_MOVE;
+		final OptionalLong child = book.lookup(game.canonicalHash64());
+		if (!child.isPresent()) return NO_MOVE;
+		final int[] moves = new int[game.nMoveCodes()];
+		final int length = game.moves(moves);
+		for (int i=0; i<length; ++i) {
+			if (game.play(moves[i]).canonicalHash64() == child.getAsLong()) return moves[i];
+		}
+		return NO_MOVE; // A hash collision.
+	}
+
+	private static final int NO_MOVE = -1;
+
+	private final GameBook book;
+	private final GameActor fallback;
+}
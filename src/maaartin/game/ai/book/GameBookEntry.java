@@ -0,0 +1,16 @@
+package maaartin.game.ai.book;
+
+import javax.annotation.concurrent.Immutable;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/** A single record of a {@link GameBook}. */
+@RequiredArgsConstructor @Getter @Immutable public final class GameBookEntry {
+	/** The {@link maaartin.game.Game#canonicalHash64()} of the position. */
+	private final long key;
+	/** The {@link maaartin.game.Game#canonicalHash64()} of the position after the best move, see {@link GameBookActor}. */
+	private final long child;
+	/** How often the position occurred when generating the book. */
+	private final int frequency;
+}
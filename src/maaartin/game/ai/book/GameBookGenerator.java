@@ -0,0 +1,93 @@
+package maaartin.game.ai.book;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import maaartin.game.Game;
+import maaartin.game.GameActor;
+
+/**
+ * Creates a {@link GameBook} in two phases: First, the sampler plays {@link #nGames} against itself
+ * and the positions of the first {@link #maxPly} plies get counted. Then the searcher (which should be given much more time
+ * than usual) chooses the moves for the {@link #nPositions} most frequent ones.
+ *
+ * <p>The positions get identified by their canonical hash, so all equivalent positions count as one.
+ */
+@Getter @Setter @NotThreadSafe public final class GameBookGenerator<G extends Game<G>> {
+	public GameBookGenerator(G initialGame, GameActor sampler, GameActor searcher) {
+		this.initialGame = checkNotNull(initialGame);
+		this.sampler = checkNotNull(sampler);
+		this.searcher = checkNotNull(searcher);
+	}
+
+	private static final class Sample<G> {
+		Sample(G game, int ply) {
+			this.game = game;
+			this.ply = ply;
+		}
+
+		final G game;
+		final int ply;
+		int frequency;
+	}
+
+	/** Generate the book and write it to the given path. */
+	public void generate(Path path) throws IOException {
+		checkArgument(nGames>0 && maxPly>0 && nPositions>0);
+		final List<Sample<G>> samples = Ordering.from(Comparator.<Sample<G>>comparingInt(s -> -s.frequency).thenComparingInt(s -> s.ply))
+				.leastOf(sample().values(), nPositions);
+		final List<GameBookEntry> entries = Lists.newArrayListWithCapacity(samples.size());
+		for (final Sample<G> s : samples) {
+			final int move = searcher.selectMoveCode(s.game);
+			entries.add(new GameBookEntry(s.game.canonicalHash64(), s.game.play(move).canonicalHash64(), s.frequency));
+			progressListener.accept(entries.size());
+		}
+		searcher.stopPondering();
+		GameBook.write(path, entries);
+	}
+
+	/** Play the games and return the unfinished positions of the first {@link #maxPly} plies keyed by their canonical hash. */
+	private Map<Long, Sample<G>> sample() {
+		final Map<Long, Sample<G>> result = Maps.newHashMap();
+		for (int i=0; i<nGames; ++i) {
+			G game = initialGame;
+			for (int ply=0; ply<maxPly && !game.isFinished(); ++ply) {
+				final int currentPly = ply;
+				final G currentGame = game;
+				result.computeIfAbsent(game.canonicalHash64(), k -> new Sample<>(currentGame, currentPly)).frequency++;
+				game = game.play(sampler.selectMoveCode(game));
+			}
+		}
+		sampler.stopPondering();
+		return result;
+	}
+
+	private final G initialGame;
+	private final GameActor sampler;
+	private final GameActor searcher;
+
+	/** The number of games played by the sampler. */
+	private int nGames = 1000;
+	/** The number of plies from the initial game, whose positions may get included. */
+	private int maxPly = 10;
+	/** The maximum number of positions in the book. */
+	private int nPositions = 1000;
+	/** Gets called with the number of positions searched so far after each one. */
+	private IntConsumer progressListener = n -> {};
+}
@@ -0,0 +1,80 @@
+package maaartin.game.ai.book;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+import junit.framework.TestCase;
+
+import com.google.common.collect.ImmutableList;
+
+import maaartin.game.GameActor;
+import maaartin.game.ai.GameRandomActor;
+import maaartin.game.ultimatoe.Ultimatoe;
+import maaartin.game.ultimatoe.UltimatoeSymmetry;
+
+public final class _GameBookTest extends TestCase {
+	public void testLookup() throws IOException {
+		GameBook.write(path, Arrays.asList(new GameBookEntry(5, 50, 1), new GameBookEntry(-3, 30, 2), new GameBookEntry(7, 70, 3)));
+		final GameBook book = GameBook.open(path);
+		assertEquals(3, book.size());
+		assertEquals(OptionalLong.of(30), book.lookup(-3));
+		assertEquals(OptionalLong.of(50), book.lookup(5));
+		assertEquals(OptionalLong.of(70), book.lookup(7));
+		assertEquals(3, book.frequency(7));
+		for (final long key : new long[] {Long.MIN_VALUE, -4, 0, 6, Long.MAX_VALUE}) {
+			assertFalse(book.lookup(key).isPresent());
+			assertEquals(0, book.frequency(key));
+		}
+	}
+
+	public void testLookup_Empty() throws IOException {
+		GameBook.write(path, ImmutableList.of());
+		assertFalse(GameBook.open(path).lookup(0).isPresent());
+	}
+
+	public void testWrite_Duplicate() throws IOException {
+		try {
+			GameBook.write(path, Arrays.asList(new GameBookEntry(5, 50, 1), new GameBookEntry(5, 51, 1)));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testSelectMove_Symmetric() throws IOException {
+		final Ultimatoe game = Ultimatoe.INITIAL_GAME.play("00");
+		final Ultimatoe child = game.play("11");
+		GameBook.write(path, Arrays.asList(new GameBookEntry(game.canonicalHash64(), child.canonicalHash64(), 1)));
+		final GameActor actor = new GameBookActor(GameBook.open(path), new GameRandomActor());
+		assertEquals("11", actor.selectMove(game));
+		for (final UltimatoeSymmetry s : UltimatoeSymmetry.values()) {
+			final Ultimatoe image = s.apply(game);
+			assertEquals(s.apply(child), image.play(actor.selectMoveCode(image)));
+		}
+	}
+
+	public void testGenerate() throws IOException {
+		final GameBookGenerator<Ultimatoe> generator = new GameBookGenerator<>(Ultimatoe.INITIAL_GAME, new GameRandomActor(), new GameRandomActor());
+		generator.nGames(20).maxPly(3).nPositions(10).generate(path);
+		final GameBook book = GameBook.open(path);
+		assertEquals(10, book.size());
+		assertEquals(20, book.frequency(Ultimatoe.INITIAL_GAME.canonicalHash64()));
+		final GameBookActor actor = new GameBookActor(book, new GameRandomActor());
+		final int move = actor.bookMove(Ultimatoe.INITIAL_GAME);
+		assertTrue(move >= 0);
+		assertEquals(book.lookup(Ultimatoe.INITIAL_GAME.canonicalHash64()).getAsLong(), Ultimatoe.INITIAL_GAME.play(move).canonicalHash64());
+	}
+
+	@Override protected void setUp() throws IOException {
+		path = Files.createTempFile("book", ".book");
+	}
+
+	@Override protected void tearDown() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	private Path path;
+}
@@ -4,150 +4,270 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
 
-import lombok.AccessLevel;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 import com.google.common.collect.ImmutableBiMap;
 
 import maaartin.game.GamePlayer;
+import maaartin.game.GameRandom;
 import maaartin.game.StandardGame;
 import maaartin.game.StandardPlayer;
 
-@RequiredArgsConstructor(access=AccessLevel.PRIVATE) @EqualsAndHashCode(callSuper=false)
+/**
+ * The game state, represented by bitboards.
+ *
+ * <p>Each player has 128 bits split into two longs, with 16 bits per row, so that the bit index equals the move code
+ * (see {@link FivedownUtils#coordinatesToMove(int, int)}). The last bit of each row is an always empty guard column,
+ * so that sequences can't wrap around when shifting.
+ */
 public final class Fivedown extends StandardGame<Fivedown> {
-	@Override public boolean isFinished() {
-		return !winner.isDummy() || turn >= WIDTH * HEIGHT && isFull();
+	private Fivedown(int turn, GamePlayer winner, int playerOnTurnEnergy, int otherPlayerEnergy, long[] bits, long hash64) {
+		this.turn = turn;
+		this.winner = checkNotNull(winner);
+		this.playerOnTurnEnergy = playerOnTurnEnergy;
+		this.otherPlayerEnergy = otherPlayerEnergy;
+		this.bits = bits;
+		this.hash64 = hash64;
+		if (winner.isDummy()) {
+			final int own = 2 * (turn & 1);
+			final long occupiedLow = bits[0] | bits[2];
+			final long occupiedHigh = bits[1] | bits[3];
+			// A field is supported, if the field below it is occupied or if it's in the bottom row.
+			final long supportedLow = occupiedLow >>> WIDTH_WITH_GUARD | occupiedHigh << (Long.SIZE - WIDTH_WITH_GUARD);
+			final long supportedHigh = occupiedHigh >>> WIDTH_WITH_GUARD | BOTTOM_ROW_HIGH;
+			final boolean canBaloon = playerOnTurnEnergy >= ENERGY_FOR_BALOON;
+			legalLow = ~occupiedLow & FIELDS_MASK & (canBaloon ? -1 : supportedLow) | bits[own] & ~supportedLow;
+			legalHigh = ~occupiedHigh & FIELDS_MASK & (canBaloon ? -1 : supportedHigh) | bits[own+1] & ~supportedHigh;
+		} else {
+			legalLow = 0;
+			legalHigh = 0;
+		}
 	}
 
-	private boolean isFull() {
-		for (final int x : data) {
-			if (Integer.bitCount(x) < WIDTH) return false;
+	/**
+	 * Create a game from its bitboards, turn and energies, deriving all other fields.
+	 *
+	 * @param bits the bitboards as in {@link #bits(int)}, which get copied
+	 * @throws IllegalArgumentException if the arguments can't represent a valid state.
+	 */
+	static Fivedown create(int turn, int xEnergy, int oEnergy, long[] bits) {
+		checkArgument(turn>=0 && bits.length == 4);
+		long hash64 = (turn & 1) == 0 ? 0 : SIDE_KEY;
+		for (int i=0; i<bits.length; ++i) {
+			checkArgument((bits[i] & ~FIELDS_MASK) == 0, "Guard column must be empty");
+			for (long m=bits[i]; m!=0; m&=m-1) hash64 ^= pieceKey(i/2, Long.SIZE * (i%2) + Long.numberOfTrailingZeros(m));
 		}
-		return true;
+		checkArgument((bits[0] & bits[2]) == 0 && (bits[1] & bits[3]) == 0, "Overlapping pieces");
+		hash64 ^= energyKey(0, xEnergy) ^ energyKey(1, oEnergy);
+		final boolean xHasFive = hasFive(bits[0], bits[1]);
+		final boolean oHasFive = hasFive(bits[2], bits[3]);
+		checkArgument(!(xHasFive && oHasFive), "Both players can't win");
+		final GamePlayer winner = xHasFive ? StandardPlayer.PLAYER_X : oHasFive ? StandardPlayer.PLAYER_O : StandardPlayer.NOBODY;
+		final boolean xOnTurn = (turn & 1) == 0;
+		return new Fivedown(turn, winner, xOnTurn ? xEnergy : oEnergy, xOnTurn ? oEnergy : xEnergy, bits.clone(), hash64);
+	}
+
+	@Override public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof Fivedown)) return false;
+		final Fivedown that = (Fivedown) obj;
+		return hash64 == that.hash64
+				&& turn == that.turn
+				&& winner == that.winner
+				&& playerOnTurnEnergy == that.playerOnTurnEnergy
+				&& otherPlayerEnergy == that.otherPlayerEnergy
+				&& Arrays.equals(bits, that.bits);
+	}
+
+	@Override public int hashCode() {
+		return Long.hashCode(hash64);
+	}
+
+	/** Return true if there's no legal move. This happens only when somebody has won or the board is full. */
+	@Override public boolean isFinished() {
+		return (legalLow | legalHigh) == 0;
 	}
 
 	@Override public ImmutableBiMap<Fivedown, String> children() {
 		final ImmutableBiMap.Builder<Fivedown, String> result = ImmutableBiMap.builder();
-		for (int y=0; y<HEIGHT; ++y) {
-			for (int x=0; x<WIDTH; ++x) {
-				if (isPlayable(x, y)) result.put(play(x, y), FivedownUtils.coordinatesToMoveString(x, y));
-			}
-		}
+		for (long m=legalLow; m!=0; m&=m-1) put(result, Long.numberOfTrailingZeros(m));
+		for (long m=legalHigh; m!=0; m&=m-1) put(result, Long.SIZE + Long.numberOfTrailingZeros(m));
 		return result.build();
 	}
 
+	private void put(ImmutableBiMap.Builder<Fivedown, String> builder, int move) {
+		builder.put(play(move), moveToString(move));
+	}
+
 	@Override public Fivedown play(String move) {
 		checkNotNull(move);
 		return play(FivedownUtils.stringToX(move), FivedownUtils.stringToY(move));
 	}
 
+	@Override public Fivedown play(int move) {
+		return play(FivedownUtils.moveToX(move), FivedownUtils.moveToY(move));
+	}
+
+	@Override public int moves(int[] result) {
+		int n = 0;
+		for (long m=legalLow; m!=0; m&=m-1) result[n++] = Long.numberOfTrailingZeros(m);
+		for (long m=legalHigh; m!=0; m&=m-1) result[n++] = Long.SIZE + Long.numberOfTrailingZeros(m);
+		return n;
+	}
+
+	@Override public int nMoveCodes() {
+		return FivedownUtils.coordinatesToMove(0, HEIGHT);
+	}
+
+	@Override public String moveToString(int move) {
+		return FivedownUtils.coordinatesToMoveString(FivedownUtils.moveToX(move), FivedownUtils.moveToY(move));
+	}
+
+	@Override public int parseMove(String move) {
+		return FivedownUtils.coordinatesToMove(FivedownUtils.stringToX(move), FivedownUtils.stringToY(move));
+	}
+
 	private Fivedown play(int x, int y) {
 		checkState(!isFinished());
 		checkArgument(areInBounds(x, y));
-		checkArgument(isPlayable(x, y));
+		final int move = FivedownUtils.coordinatesToMove(x, y);
+		checkArgument(isPlayable(move));
 
-		final int[] data = this.data.clone();
-		if (isEmpty(x, y)) {
-			data[y] |= (playerOnTurn().ordinal() + 1) << (2*x);
+		final long[] bits = this.bits.clone();
+		final int playerIndex = turn & 1;
+		final int own = 2 * playerIndex;
+		long hash64 = this.hash64 ^ SIDE_KEY;
+		final int consumedEnergy;
+		if (isEmpty(move)) {
+			bits[own + half(move)] |= 1L << move;
+			hash64 ^= pieceKey(playerIndex, move);
+			consumedEnergy = isSupported(move) ? ENERGY_FOR_NORMAL : ENERGY_FOR_BALOON;
 		} else {
-			final int playerInternal = getPlayerInternal(x, y);
-			data[y] ^= playerInternal << (2*x);
-			for (int y2=y; ; ++y2) {
-				if (y2!=HEIGHT-1 && isEmpty(x, y2+1)) continue;
-				data[y2] ^= playerInternal << (2*x);
-				break;
-			}
+			int landing = move + WIDTH_WITH_GUARD;
+			while (landing + WIDTH_WITH_GUARD < FIELDS_WITH_GUARD && isEmpty(landing + WIDTH_WITH_GUARD)) landing += WIDTH_WITH_GUARD;
+			bits[own + half(move)] ^= 1L << move;
+			bits[own + half(landing)] ^= 1L << landing;
+			hash64 ^= pieceKey(playerIndex, move) ^ pieceKey(playerIndex, landing);
+			consumedEnergy = ENERGY_FOR_LANDING;
 		}
 
-		final boolean needsBaloon = needsBaloon(x, y);
-		final int consumedEnergy = isEmpty(x, y) ? needsBaloon ? ENERGY_FOR_BALOON : ENERGY_FOR_NORMAL : ENERGY_FOR_LANDING;
 		final int newEnergy = playerOnTurnEnergy - consumedEnergy;
-		final GamePlayer winner = isWinningTurn(x, y) ? playerOnTurn() : this.winner;
+		final GamePlayer winner = hasFive(bits[own], bits[own+1]) ? playerOnTurn() : this.winner;
+		hash64 ^= energyKey(playerIndex, playerOnTurnEnergy) ^ energyKey(playerIndex, newEnergy);
+
+		return new Fivedown(turn+1, winner, otherPlayerEnergy, newEnergy, bits, hash64);
+	}
 
-		return new Fivedown(turn+1, winner, otherPlayerEnergy, newEnergy, data);
+	private static long pieceKey(int playerIndex, int move) {
+		return PIECE_KEYS[move + (playerIndex==0 ? 0 : PIECE_KEYS.length / 2)];
+	}
+
+	/**
+	 * Return the Zobrist key for the energy of the given player.
+	 * As the energy is unbounded, the key gets computed by mixing rather than looked up.
+	 */
+	private static long energyKey(int playerIndex, int energy) {
+		long result = (2L*energy + playerIndex) * 0x9E3779B97F4A7C15L;
+		result ^= result >>> 32;
+		result *= 0xD6E8FEB86659FD93L;
+		return result ^ (result >>> 32);
 	}
 
 	private boolean areInBounds(int x, int y) {
 		return 0<=x && x<WIDTH && 0<=y && y<HEIGHT;
 	}
 
-	private boolean isWinningTurn(int x, int y) {
-		final int playerInternal = playerOnTurn().ordinal() + 1;
-		if (sequenceLength(playerInternal, x, y, 1, 0) >= WINNING_SEQUENCE_LENGTH) return true;
-		if (sequenceLength(playerInternal, x, y, 0, 1) >= WINNING_SEQUENCE_LENGTH) return true;
-		if (sequenceLength(playerInternal, x, y, 1, 1) >= WINNING_SEQUENCE_LENGTH) return true;
-		if (sequenceLength(playerInternal, x, y, 1, -1) >= WINNING_SEQUENCE_LENGTH) return true;
+	/**
+	 * Return true if the bitboard given by its two halves contains {@value #WINNING_SEQUENCE_LENGTH} pieces in a row.
+	 *
+	 * <p>For each direction, the board gets ANDed with its shifted copies, so that a bit survives
+	 * only if it starts a sequence. Thanks to the guard column, no sequence wraps around.
+	 */
+	private static boolean hasFive(long low, long high) {
+		for (final int shift : DIRECTIONS) {
+			// Sequences of length 2, then 4, then 5.
+			long resultLow = low & shiftRightLow(low, high, shift);
+			long resultHigh = high & high >>> shift;
+			resultLow &= shiftRightLow(resultLow, resultHigh, 2*shift);
+			resultHigh &= resultHigh >>> 2*shift;
+			resultLow &= shiftRightLow(low, high, 4*shift);
+			resultHigh &= 4*shift < Long.SIZE ? high >>> 4*shift : 0;
+			if ((resultLow | resultHigh) != 0) return true;
+		}
 		return false;
 	}
 
-	private int sequenceLength(int playerInternal, int x, int y, int dx, int dy) {
-		return 1 + sequenceLength1(playerInternal, x, y, dx, dy) + sequenceLength1(playerInternal, x, y, -dx, -dy);
+	/** Return the lower half of the 128-bit value given by its halves shifted right by the given distance. */
+	private static long shiftRightLow(long low, long high, int distance) {
+		if (distance >= Long.SIZE) return high >>> (distance - Long.SIZE);
+		return low >>> distance | high << (Long.SIZE - distance);
 	}
 
-	private int sequenceLength1(int playerInternal, int x, int y, int dx, int dy) {
-		int result = 0;
-		while (true) {
-			x += dx;
-			y += dy;
-			if (!areInBounds(x, y)) break;
-			if (getPlayerInternal(x, y) != playerInternal) break;
-			++result;
-		}
-		return result;
+	private boolean isPlayable(int move) {
+		return (legal(half(move)) & (1L << move)) != 0;
 	}
 
-	private boolean isPlayable(int x, int y) {
-		if (isFinished()) return false;
-		final boolean needsBaloon = needsBaloon(x, y);
-		final int playerInternal = getPlayerInternal(x, y);
-		if (playerInternal==0) {
-			if (playerOnTurnEnergy<ENERGY_FOR_BALOON && needsBaloon) return false;
-		} else if (playerInternal == playerOnTurn().ordinal() + 1) {
-			if (!needsBaloon) return false;
-		} else {
-			return false;
-		}
-		return true;
+	private long legal(int half) {
+		return half==0 ? legalLow : legalHigh;
 	}
 
-	private boolean needsBaloon(int x, int y) {
-		return y != data.length-1 && isEmpty(x, y+1);
+	/** Return true if the field lies in the bottom row or if the field below it is occupied. */
+	private boolean isSupported(int move) {
+		final int below = move + WIDTH_WITH_GUARD;
+		return below >= FIELDS_WITH_GUARD || !isEmpty(below);
 	}
 
-	private boolean isEmpty(int x, int y) {
-		return getPlayerInternal(x, y) == 0;
+	private boolean isEmpty(int move) {
+		return getPlayerInternal(move) == 0;
 	}
 
-	private int getPlayerInternal(int x, int y) {
-		return (data[y] >> (2*x)) & 3;
+	private int getPlayerInternal(int move) {
+		final long mask = 1L << move;
+		final int half = half(move);
+		if ((bits[half] & mask) != 0) return 1;
+		if ((bits[2 + half] & mask) != 0) return 2;
+		return 0;
 	}
 
+	/** Return the index of the long holding the bit for the given move, i.e., 0 or 1. */
+	private static int half(int move) {
+		return move >>> 6;
+	}
 
 	@Override public Fivedown play(Random random) {
-		while (true) {
-			final int x = random.nextInt(WIDTH);
-			final int y = random.nextInt(HEIGHT);
-			if (isPlayable(x, y)) return play(x, y);
-		}
+		checkArgument(!isFinished());
+		final int lowCount = Long.bitCount(legalLow);
+		final int n = random.nextInt(lowCount + Long.bitCount(legalHigh));
+		if (n < lowCount) return play(GameRandom.nthSetBit(legalLow, n));
+		return play(Long.SIZE + GameRandom.nthSetBit(legalHigh, n - lowCount));
 	}
 
+	/**
+	 * Return the board row by row, followed by a line containing the turn and the energies of the players X and O.
+	 * The turn and the energies are needed for recreating the game, as they can't be derived from the board.
+	 */
 	@Override public String asString() {
 		final StringBuilder result = new StringBuilder();
 		for (int y=0; y<HEIGHT; ++y) {
-			if (y>0) result.append("\n");
-			for (int x=0; x<WIDTH; ++x) result.append(getCharFor(x, y));
+			for (int x=0; x<WIDTH; ++x) result.append(getCharFor(FivedownUtils.coordinatesToMove(x, y)));
+			result.append("\n");
 		}
+		result.append(turn).append(' ').append(getEnergy(StandardPlayer.PLAYER_X)).append(' ').append(getEnergy(StandardPlayer.PLAYER_O));
 		return result.toString();
 	}
 
-	private char getCharFor(int x, int y) {
-		final GamePlayer p = PLAYERS_INTERNAL[getPlayerInternal(x, y)];
-		return FivedownUtils.toChar(p, isPlayable(x, y));
+	private char getCharFor(int move) {
+		final GamePlayer p = PLAYERS_INTERNAL[getPlayerInternal(move)];
+		return FivedownUtils.toChar(p, isPlayable(move));
+	}
+
+	/** Return the bitboard given by its index, see {@link #bits}. */
+	long bits(int index) {
+		return bits[index];
 	}
 
 	int getEnergy(GamePlayer player) {
@@ -158,6 +278,14 @@ public final class Fivedown extends StandardGame<Fivedown> {
 	static final int WIDTH = 15;
 	static final int HEIGHT = 8;
 
+	private static final int WIDTH_WITH_GUARD = 16;
+	private static final int FIELDS_WITH_GUARD = WIDTH_WITH_GUARD * HEIGHT;
+	/** The bits of a half excluding the guard column. */
+	private static final long FIELDS_MASK = 0x7FFF_7FFF_7FFF_7FFFL;
+	private static final long BOTTOM_ROW_HIGH = 0x7FFFL << (Long.SIZE - WIDTH_WITH_GUARD);
+	/** The shifts for a step to the right, down, down-left and down-right. */
+	private static final int[] DIRECTIONS = {1, WIDTH_WITH_GUARD, WIDTH_WITH_GUARD - 1, WIDTH_WITH_GUARD + 1};
+
 	private static final int WINNING_SEQUENCE_LENGTH = 5;
 	private static final int ENERGY_FOR_LANDING = -3;
 	private static final int ENERGY_FOR_NORMAL = -1;
@@ -166,11 +294,27 @@ public final class Fivedown extends StandardGame<Fivedown> {
 	private static final GamePlayer[] PLAYERS_INTERNAL =
 		{StandardPlayer.NOBODY, StandardPlayer.PLAYER_X, StandardPlayer.PLAYER_O};
 
-	public static final Fivedown INITIAL_GAME = new Fivedown(0, StandardPlayer.NOBODY, 0, 5, new int[HEIGHT]);
+	private static final long[] PIECE_KEYS = new SplittableRandom(0xF1DEL).longs(2 * FIELDS_WITH_GUARD).toArray();
+	private static final long SIDE_KEY = new SplittableRandom(0xF1DEL + 1).nextLong();
+
+	public static final Fivedown INITIAL_GAME =
+			new Fivedown(0, StandardPlayer.NOBODY, 0, 5, new long[4], energyKey(0, 0) ^ energyKey(1, 5));
 
 	@Getter private final int turn;
-	@Getter @NonNull private final GamePlayer winner;
+	@Getter private final GamePlayer winner;
 	private final int playerOnTurnEnergy;
 	private final int otherPlayerEnergy;
-	@NonNull private final int[] data;
+
+	/** The bitboards indexed by {@code 2*playerIndex + half}, see the class javadoc and {@link #half(int)}. */
+	private final long[] bits;
+
+	/** The bits of the legal moves in the lower and upper half, derived from the other fields. */
+	private final long legalLow;
+	private final long legalHigh;
+
+	/**
+	 * The Zobrist hash, i.e., the xor of the keys of all pieces, the energies of both players,
+	 * and of {@link #SIDE_KEY} if the second player is on turn.
+	 */
+	@Getter private final long hash64;
 }
@@ -0,0 +1,78 @@
+package maaartin.game.fivedown;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Splitter;
+
+import maaartin.game.GameCodec;
+import maaartin.game.StandardPlayer;
+
+/**
+ * The codec for {@link Fivedown}.
+ *
+ * <p>The binary form consists of 5 longs: the four bitboards (see {@link Fivedown#bits(int)})
+ * followed by the turn and the energies of the players X and O packed as three shorts.
+ */
+@Immutable public final class FivedownCodec implements GameCodec<Fivedown> {
+	private FivedownCodec() {
+	}
+
+	@Override public int encodedLength() {
+		return (N_BITBOARDS + 1) * Long.BYTES;
+	}
+
+	@Override public void encode(Fivedown game, ByteBuffer buffer) {
+		for (int i=0; i<N_BITBOARDS; ++i) buffer.putLong(game.bits(i));
+		buffer.putShort(toShort(game.turn()));
+		buffer.putShort(toShort(game.getEnergy(StandardPlayer.PLAYER_X)));
+		buffer.putShort(toShort(game.getEnergy(StandardPlayer.PLAYER_O)));
+		buffer.putShort((short) 0);
+	}
+
+	private static short toShort(int x) {
+		checkArgument(x == (short) x);
+		return (short) x;
+	}
+
+	@Override public Fivedown decode(ByteBuffer buffer) {
+		final long[] bits = new long[N_BITBOARDS];
+		for (int i=0; i<N_BITBOARDS; ++i) bits[i] = buffer.getLong();
+		final int turn = buffer.getShort();
+		final int xEnergy = buffer.getShort();
+		final int oEnergy = buffer.getShort();
+		checkArgument(buffer.getShort() == 0);
+		return Fivedown.create(turn, xEnergy, oEnergy, bits);
+	}
+
+	/** Parse the string produced by {@link Fivedown#asString()}, ignoring the case, i.e., the playability. */
+	@Override public Fivedown parse(String string) {
+		final long[] bits = new long[N_BITBOARDS];
+		final int boardLength = (Fivedown.WIDTH+1) * Fivedown.HEIGHT;
+		checkArgument(string.length() > boardLength, "Too short");
+		for (int y=0; y<Fivedown.HEIGHT; ++y) {
+			checkArgument(string.charAt((Fivedown.WIDTH+1) * y + Fivedown.WIDTH) == '\n', "Wrong row length");
+			for (int x=0; x<Fivedown.WIDTH; ++x) {
+				final StandardPlayer player = FivedownUtils.getPlayer(string.charAt((Fivedown.WIDTH+1) * y + x));
+				if (player.isDummy()) continue;
+				final int move = FivedownUtils.coordinatesToMove(x, y);
+				bits[2*player.ordinal() + move / Long.SIZE] |= 1L << move;
+			}
+		}
+		final int[] numbers = new int[3];
+		int i = 0;
+		for (final String s : Splitter.on(' ').split(string.substring(boardLength))) {
+			checkArgument(i < numbers.length, "Too many numbers");
+			numbers[i++] = Integer.parseInt(s);
+		}
+		checkArgument(i == numbers.length, "Too few numbers");
+		return Fivedown.create(numbers[0], numbers[1], numbers[2], bits);
+	}
+
+	private static final int N_BITBOARDS = 4;
+
+	public static final FivedownCodec INSTANCE = new FivedownCodec();
+}
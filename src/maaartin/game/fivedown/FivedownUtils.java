@@ -12,6 +12,26 @@ import maaartin.game.StandardPlayer;
 		return intToDigit(y) + "" + intToDigit(x);
 	}
 
+	/**
+	 * Convert coordinates to a move code as used by {@link Fivedown#play(int)}.
+	 *
+	 * <p>The code uses four bits for {@code x}, so that it can be decoded using shifts only.
+	 */
+	static int coordinatesToMove(int x, int y) {
+		checkArgument(0<=x && x<MOVE_X_LIMIT);
+		return (y << MOVE_X_BITS) + x;
+	}
+
+	/** A part of the inverse function to {@link #coordinatesToMove(int, int)}. */
+	static int moveToX(int move) {
+		return move & (MOVE_X_LIMIT-1);
+	}
+
+	/** A part of the inverse function to {@link #coordinatesToMove(int, int)}. */
+	static int moveToY(int move) {
+		return move >> MOVE_X_BITS;
+	}
+
 	static int stringToX(String move) {
 		checkArgument(move.length() == 2);
 		return digitToInt(move.charAt(1));
@@ -57,5 +77,8 @@ import maaartin.game.StandardPlayer;
 	final static char PLAYER_1_NON_PLAYABLE = Character.toLowerCase(StandardPlayer.PLAYER_X.toChar());
 	final static char EMPTY_NON_PLAYABLE = ' ';
 
+	private static final int MOVE_X_BITS = 4;
+	private static final int MOVE_X_LIMIT = 1 << MOVE_X_BITS;
+
 	private static final String PLAYABLE_STRING = PLAYER_0_PLAYABLE + "" + PLAYER_1_PLAYABLE + "" + EMPTY_PLAYABLE;
 }
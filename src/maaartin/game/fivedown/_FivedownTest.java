@@ -4,6 +4,8 @@ import java.util.Random;
 
 import com.google.common.collect.ImmutableBiMap;
 
+import maaartin.game.StandardPlayer;
+
 import junit.framework.TestCase;
 
 public class _FivedownTest extends TestCase {
@@ -16,4 +18,81 @@ public class _FivedownTest extends TestCase {
 			assertTrue(children.keySet().contains(f1));
 		}
 	}
+
+	public void testMoves() {
+		final Random random = new Random(112);
+		for (Fivedown f=Fivedown.INITIAL_GAME; !f.isFinished(); f=f.play(random)) {
+			final int[] moves = new int[f.nMoveCodes()];
+			final int length = f.moves(moves);
+			final ImmutableBiMap<Fivedown, String> children = f.children();
+			assertEquals(children.size(), length);
+			for (int i=0; i<length; ++i) {
+				final String move = f.moveToString(moves[i]);
+				assertEquals(moves[i], f.parseMove(move));
+				assertEquals(children.inverse().get(move), f.play(moves[i]));
+			}
+		}
+	}
+
+	public void testWinner() {
+		final Random random = new Random(113);
+		for (int i=0; i<200; ++i) {
+			Fivedown f = Fivedown.INITIAL_GAME;
+			while (!f.isFinished()) {
+				assertFalse(hasFive(f, 'x'));
+				assertFalse(hasFive(f, 'o'));
+				f = f.play(random);
+			}
+			final char winner = Character.toLowerCase(((StandardPlayer) f.winner()).toChar());
+			if (f.winner().isDummy()) {
+				assertFalse(hasFive(f, 'x') || hasFive(f, 'o'));
+			} else {
+				assertTrue(hasFive(f, winner));
+			}
+		}
+	}
+
+	/** Check cell by cell if the player given by its lowercase char has five in a row. */
+	private boolean hasFive(Fivedown f, char player) {
+		final String[] rows = f.asString().toLowerCase().split("\n");
+		final int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+		for (int y=0; y<Fivedown.HEIGHT; ++y) {
+			for (int x=0; x<Fivedown.WIDTH; ++x) {
+				for (final int[] d : directions) {
+					int length = 0;
+					for (int x2=x, y2=y; 0<=x2 && x2<Fivedown.WIDTH && 0<=y2 && y2<Fivedown.HEIGHT; x2+=d[0], y2+=d[1]) {
+						if (rows[y2].charAt(x2) != player) break;
+						++length;
+					}
+					if (length>=5) return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public void testCodec() {
+		final FivedownCodec codec = FivedownCodec.INSTANCE;
+		final Random random = new Random(114);
+		for (int i=0; i<20; ++i) {
+			for (Fivedown f=Fivedown.INITIAL_GAME; ; f=f.play(random)) {
+				final Fivedown decoded = codec.decode(codec.encode(f));
+				assertEquals(f, decoded);
+				assertEquals(f.winner(), decoded.winner());
+				assertEquals(f.asString(), decoded.asString());
+				assertEquals(f, codec.parse(f.asString()));
+				if (f.isFinished()) break;
+			}
+		}
+	}
+
+	public void testHash64_Transposition() {
+		final Fivedown f0 = Fivedown.INITIAL_GAME.play("70").play("71").play("72");
+		final Fivedown f1 = Fivedown.INITIAL_GAME.play("72").play("71").play("70");
+		final Fivedown f2 = Fivedown.INITIAL_GAME.play("70").play("72").play("71");
+		assertEquals(f0, f1);
+		assertEquals(f0.hash64(), f1.hash64());
+		assertFalse(f0.equals(f2));
+		assertFalse(f0.hash64() == f2.hash64());
+	}
 }
@@ -12,7 +12,9 @@ import lombok.experimental.Delegate;
 
 import maaartin.game.GameActor;
 import maaartin.game.ai.GameMonteCarloActor;
+import maaartin.game.ai.GameParallelUctActor;
 import maaartin.game.ai.GameRandomActor;
+import maaartin.game.ai.GameUctActor;
 import maaartin.game.ai.zomis.GameZomisActor;
 
 public class ActorChooser extends JPanel implements GameActor {
@@ -24,6 +26,9 @@ public class ActorChooser extends JPanel implements GameActor {
 		model.addElement("HUMAN");
 		model.addElement("RANDOM");
 		model.addElement("MCTS");
+		model.addElement("UCT");
+		model.addElement("UCT_PONDERING");
+		model.addElement("UCT_PARALLEL");
 		model.addElement("ZONIS_Idiot");
 		model.addElement("ZONIS_Imp3");
 		model.addElement("ZONIS_Latest");
@@ -33,6 +38,7 @@ public class ActorChooser extends JPanel implements GameActor {
 				final Object selectedItem = model.getSelectedItem();
 				SwingUtilities.invokeLater(new Runnable() {
 					@Override public void run() {
+						delegateActor.stopPondering();
 						delegateActor = toActor((String) selectedItem);
 					}
 				});
@@ -46,6 +52,9 @@ public class ActorChooser extends JPanel implements GameActor {
 			case "HUMAN": return initialActor;
 			case "RANDOM": return new GameRandomActor();
 			case "MCTS": return new GameMonteCarloActor();
+			case "UCT": return new GameUctActor();
+			case "UCT_PONDERING": return pondering(new GameUctActor());
+			case "UCT_PARALLEL": return parallel(new GameParallelUctActor());
 		}
 		if (selection.startsWith(ZONIS_PREFIX)) {
 			final String partnerName = "#AI_UTTT_" + selection.substring(ZONIS_PREFIX.length());
@@ -54,6 +63,16 @@ public class ActorChooser extends JPanel implements GameActor {
 		throw new IllegalArgumentException("Unknown:" + selection);
 	}
 
+	private static GameActor parallel(GameActor actor) {
+		actor.parameters().nThreads(Runtime.getRuntime().availableProcessors());
+		return actor;
+	}
+
+	private static GameActor pondering(GameActor actor) {
+		actor.parameters().isPondering(true);
+		return actor;
+	}
+
 	public boolean isHuman() {
 		return "HUMAN".equals(model.getSelectedItem());
 	}
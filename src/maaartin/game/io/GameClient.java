@@ -44,6 +44,8 @@ public final class GameClient implements Runnable {
 			}
 		} catch (IOException | RuntimeException e) {
 			log(e);
+		} finally {
+			actor.stopPondering();
 		}
 	}
 
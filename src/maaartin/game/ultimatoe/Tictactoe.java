@@ -4,102 +4,115 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
-import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
-import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
-import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.NonNull;
 
 import com.google.common.collect.ImmutableBiMap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
-import maaartin.game.GamePlayer;
 import maaartin.game.StandardGame;
 import maaartin.game.StandardPlayer;
 
 /**
  * Representation of a 3x3 board of {@link Ultimatoe}.
  *
- * <p>As there are just a few thousands reachable states, they all get pre-created with all necessary data
- * in order to make moves as fast as possible.
+ * <p>A board state is identified by its id, which is simply the base-3 number having a digit per field
+ * (0 for an empty field, 1 for player X and 2 for player O; the first field is the least significant digit).
+ * All data needed for the moves get precomputed into small primitive tables indexed by the id,
+ * so that {@link Ultimatoe} can represent its boards as a {@code short[]} and move using a few lookups only.
+ *
+ * <p>The instances are mere views of the ids, created lazily when needed as a {@link maaartin.game.Game}
+ * (e.g., for the GUI).
  */
 @Immutable public final class Tictactoe extends StandardGame<Tictactoe> {
+	private Tictactoe(int state) {
+		this.state = state;
+		int turn = 0;
+		for (int i=0; i<AREA; ++i) {
+			if (!playerOnField(state, i).isDummy()) ++turn;
+		}
+		this.turn = turn;
+	}
+
+	/** Return the view of the given state. */
+	static Tictactoe forState(int state) {
+		checkArgument(0<=state && state<N_STATES);
+		Tictactoe result = INSTANCES[state];
+		if (result==null) {
+			// A benign race, as the instances are immutable and get compared by their state.
+			result = new Tictactoe(state);
+			INSTANCES[state] = result;
+		}
+		return result;
+	}
+
 	@Override public Tictactoe play(String move) {
-		return checkNotNull(children.inverse().get(move));
+		checkNotNull(move);
+		return play(parseMove(move));
+	}
+
+	@SuppressWarnings("boxing") @Override public Tictactoe play(int move) {
+		checkArgument(0<=move && move<AREA && isPlayable(move), "Illegal move %s", move);
+		return forState(play(state, move, playerOnTurn().ordinal()));
+	}
+
+	@Override public int moves(int[] result) {
+		int n = 0;
+		for (int p=possibilities(); p!=0; p&=p-1) result[n++] = Integer.numberOfTrailingZeros(p);
+		return n;
+	}
+
+	@Override public int nMoveCodes() {
+		return AREA;
+	}
+
+	@Override public String moveToString(int move) {
+		checkArgument(0<=move && move<AREA);
+		return String.valueOf(move);
+	}
+
+	@Override public int parseMove(String move) {
+		checkArgument(move.length() == 1);
+		final int result = move.charAt(0) - '0';
+		checkArgument(0<=result && result<AREA);
+		return result;
 	}
 
 	@Override public Tictactoe play(Random random) {
 		checkNotNull(random);
-		final int size = children.size();
-		checkState(size>0);
-		return children.keySet().asList().get(random.nextInt(size));
+		final int[] moves = new int[AREA];
+		final int length = moves(moves);
+		checkState(length>0);
+		return play(moves[random.nextInt(length)]);
 	}
 
-	/**
-	 * Create a new board described by the given fields and also recursively create
-	 * all its ancestors unless found in the repository.
-	 *
-	 * @param fields the effectivelly immutable list containing state of the nine fields
-	 * @param repository a map filled with already created boards
-	 */
-	private Tictactoe(int turn, List<StandardPlayer> fields, Map<List<StandardPlayer>, Tictactoe> repository) {
-		this.turn = turn;
-		checkArgument(fields.size() == AREA);
-		this.fields = fields;
-		winner = computeWinner();
-		int possibilities = 0;
-		final ImmutableBiMap.Builder<Tictactoe, String> children = ImmutableBiMap.builder();
-		if (winner.isDummy()) {
-			for (final GamePlayer player : StandardPlayer.PLAYERS) {
-				if (player.isDummy()) continue;
-				for (int i=0; i<AREA; ++i) {
-					if (!getPlayerOnField(i).isDummy()) continue;
-					final Tictactoe child = getOrCreateChild(i, (StandardPlayer) player, repository);
-					childArray[childIndex(i, player)] = child;
-					if (player == playerOnTurn()) children.put(child, String.valueOf(i));
-					possibilities |= 1 << i;
-				}
-			}
+	@Override public ImmutableBiMap<Tictactoe, String> children() {
+		final ImmutableBiMap.Builder<Tictactoe, String> result = ImmutableBiMap.builder();
+		for (int p=possibilities(); p!=0; p&=p-1) {
+			final int move = Integer.numberOfTrailingZeros(p);
+			result.put(play(move), moveToString(move));
+		}
+		return result.build();
+	}
+
+	/** Return the Zobrist hash of the fields. */
+	@Override public long hash64() {
+		long result = 0;
+		for (int i=0; i<AREA; ++i) {
+			final StandardPlayer player = getPlayerOnField(i);
+			if (!player.isDummy()) result ^= UltimatoeUtils.pieceKey(player.ordinal(), i);
 		}
-		this.possibilities = possibilities;
-		this.children = children.build();
-	}
-
-	/** Get or create a child by executing a move of the given player on a field given by the index. */
-	private Tictactoe getOrCreateChild(
-			int index, StandardPlayer player, Map<List<StandardPlayer>, Tictactoe> repository) {
-		final List<StandardPlayer> childFields = Lists.newArrayList(this.fields);
-		childFields.set(index, player);
-		Tictactoe result = repository.get(childFields);
-		if (result!=null) return result;
-		result = new Tictactoe(turn+1, childFields, repository);
-		repository.put(childFields, result);
 		return result;
 	}
 
-	/** Create the empty board. Must be called just once. */
-	private static Tictactoe createEmptyBoard() {
-		final List<StandardPlayer> emptyFields = Lists.newArrayList();
-		for (int i=0; i<AREA; ++i) emptyFields.add(StandardPlayer.NOBODY);
-		final Map<List<StandardPlayer>, Tictactoe> repository = Maps.newHashMap();
-		return new Tictactoe(0, emptyFields, repository);
+	@Override public boolean equals(Object obj) {
+		return obj instanceof Tictactoe && state == ((Tictactoe) obj).state;
 	}
 
-	private StandardPlayer computeWinner() {
-		for (final int[] winningSet : UltimatoeUtils.WINNING_SETS) {
-			final StandardPlayer player = getPlayerOnField(winningSet[0]);
-			if (player.isDummy()) continue;
-			if (player != getPlayerOnField(winningSet[1])) continue;
-			if (player != getPlayerOnField(winningSet[2])) continue;
-			return player;
-		}
-		return StandardPlayer.NOBODY;
+	@Override public int hashCode() {
+		return state;
 	}
 
 	@Override public String asString() {
@@ -111,13 +124,12 @@ import maaartin.game.StandardPlayer;
 		return result.substring(1);
 	}
 
-	/** Return a child corresponding to executing a move of the given player on a field given by the index. */
-	@Nullable Tictactoe play(int index, GamePlayer player) {
-		return childArray[childIndex(index, player)];
+	@Override public StandardPlayer winner() {
+		return winner(state);
 	}
 
 	StandardPlayer getPlayerOnField(int index) {
-		return fields.get(index);
+		return playerOnField(state, index);
 	}
 
 	/**
@@ -125,50 +137,112 @@ import maaartin.game.StandardPlayer;
 	 * i.e., if the field is empty and the board hasn't been decided yet.
 	 */
 	boolean isPlayable(int index) {
-		return (possibilities & (1<<index)) != 0;
+		return (possibilities() & (1<<index)) != 0;
 	}
 
 	/** Return true if this board has been finished. */
 	@Override public boolean isFinished() {
-		return possibilities == 0;
+		return possibilities() == 0;
+	}
+
+	/** See {@link #possibilities(int)}. */
+	int possibilities() {
+		return possibilities(state);
+	}
+
+	/**
+	 * Return the state resulting from the given player placing a piece on the field given by the index.
+	 * The move must be legal, i.e., the field must be allowed by {@link #possibilities(int)}.
+	 */
+	static int play(int state, int index, int playerOrdinal) {
+		return state + (playerOrdinal+1) * POWERS_OF_THREE[index];
 	}
 
-	private int childIndex(int index, GamePlayer player) {
-		return 2*index + player.ordinal();
+	/**
+	 * Return a bitmask determining which moves are allowed, i.e.,<ul>
+	 * <li>which fields are empty, if the board hasn't been decided yet.
+	 * <li>zero, otherwise.</ul>
+	 */
+	static int possibilities(int state) {
+		return POSSIBILITIES[state];
+	}
+
+	/** Return the player who has won, otherwise {@link StandardPlayer#NOBODY}. */
+	static StandardPlayer winner(int state) {
+		return PLAYERS[WINNERS[state]];
+	}
+
+	static StandardPlayer playerOnField(int state, int index) {
+		return PLAYERS[(state / POWERS_OF_THREE[index]) % 3];
+	}
+
+	private static int[] createPowersOfThree() {
+		final int[] result = new int[AREA+1];
+		result[0] = 1;
+		for (int i=1; i<result.length; ++i) result[i] = 3 * result[i-1];
+		return result;
+	}
+
+	/** Return the bitmask of fields containing the given digit (see the class javadoc). */
+	private static int fieldMask(int state, int digit) {
+		int result = 0;
+		for (int i=0; i<AREA; ++i) {
+			if ((state / POWERS_OF_THREE[i]) % 3 == digit) result |= 1<<i;
+		}
+		return result;
+	}
+
+	/**
+	 * Create the table of winners. It includes a few unreachable states (e.g., with both players winning).
+	 * These never get used, so whatever gets stored there doesn't matter.
+	 */
+	private static byte[] createWinners() {
+		final byte[] result = new byte[N_STATES];
+		for (int state=0; state<N_STATES; ++state) {
+			if (UltimatoeUtils.isWin(fieldMask(state, X_DIGIT))) {
+				result[state] = X_DIGIT;
+			} else if (UltimatoeUtils.isWin(fieldMask(state, O_DIGIT))) {
+				result[state] = O_DIGIT;
+			}
+		}
+		return result;
+	}
+
+	private static short[] createPossibilities() {
+		final short[] result = new short[N_STATES];
+		for (int state=0; state<N_STATES; ++state) {
+			if (WINNERS[state] == EMPTY_DIGIT) result[state] = (short) fieldMask(state, EMPTY_DIGIT);
+		}
+		return result;
 	}
 
 	private static final int WIDTH = 3;
 	private static final int HEIGHT = 3;
 	private static final int AREA = WIDTH * HEIGHT;
 
-	static final Tictactoe INITIAL_GAME = createEmptyBoard();
+	private static final int[] POWERS_OF_THREE = createPowersOfThree();
+	private static final byte EMPTY_DIGIT = 0;
+	private static final byte X_DIGIT = 1;
+	private static final byte O_DIGIT = 2;
+	private static final StandardPlayer[] PLAYERS = {StandardPlayer.NOBODY, StandardPlayer.PLAYER_X, StandardPlayer.PLAYER_O};
 
-	/** The number of turns made on this board. */
-	@Getter private final int turn;
+	/** The number of state ids, i.e., 3**9. */
+	static final int N_STATES = POWERS_OF_THREE[AREA];
 
-	/** The 9 fields of the board, from left to right, then top to bottom. Effectively immutable. */
-	private final List<StandardPlayer> fields;
+	/** Indexed by state, contains the digit of the winner. */
+	private static final byte[] WINNERS = createWinners();
 
-	/** The player who has won, otherwise {@link StandardPlayer#NOBODY}. */
-	@Getter @NonNull private final StandardPlayer winner;
+	/** Indexed by state, see {@link #possibilities(int)}. */
+	private static final short[] POSSIBILITIES = createPossibilities();
 
-	/**
-	 * A bitmask determining which moves are allowed, i.e.,<ul>
-	 * <li>which fields are empty, if the board hasn't been decided yet.
-	 * <li>zero, otherwise.
-	 *
-	 * <p>For details, see the code of {@link Tictactoe#isPlayable(int)}.
-	 */
-	@Getter(AccessLevel.PROTECTED) private final int possibilities;
+	private static final Tictactoe[] INSTANCES = new Tictactoe[N_STATES];
 
-	/**
-	 * An array of all child boards, i.e., boards resulting from one player placing one piece on an empty field.
-	 *
-	 * <p>For details, see the code of {@link Tictactoe#childIndex(int, GamePlayer)}.
-	 * A 1D arrays gets used for maximum speed (better memory locality).
-	 * This may or may not be a premature optimization.
-	 */
-	private final Tictactoe[] childArray = new Tictactoe[2*AREA];
+	static final int EMPTY_STATE = 0;
+	static final Tictactoe INITIAL_GAME = forState(EMPTY_STATE);
+
+	/** The id of the state, see the class javadoc. */
+	@Getter private final int state;
 
-	@Getter private final ImmutableBiMap<Tictactoe, String> children;
+	/** The number of turns made on this board. */
+	@Getter private final int turn;
 }
@@ -1,6 +1,8 @@
 package maaartin.game.ultimatoe;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -8,7 +10,6 @@ import java.util.Random;
 import javax.annotation.concurrent.Immutable;
 
 import lombok.AccessLevel;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -25,7 +26,7 @@ import maaartin.game.StandardPlayer;
  * An immutable representation of (the state of)
  * <a href="http://mathwithbaddrawings.com/2013/06/16/ultimate-tic-tac-toe">Ultimate Tic-Tac-Toe</a>.
  */
-@RequiredArgsConstructor(access=AccessLevel.PRIVATE) @EqualsAndHashCode @Immutable
+@RequiredArgsConstructor(access=AccessLevel.PACKAGE) @Immutable
 public final class Ultimatoe implements Game<Ultimatoe> {
 	@UtilityClass private static final class ToStringHelper {
 		static String toString(Ultimatoe game) {
@@ -35,10 +36,10 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 			for (int majorY=0; majorY<3; ++majorY) {
 				for (int majorX=0; majorX<3; ++majorX) {
 					final int majorIndex = majorX + 3*majorY;
-					final Tictactoe board = game.boards[majorIndex];
+					final int board = game.boards[majorIndex];
 					for (int minorY=0; minorY<3; ++minorY) {
 						for (int minorX=0; minorX<3; ++minorX) {
-							final StandardPlayer player = board.getPlayerOnField(minorX + 3*minorY);
+							final StandardPlayer player = Tictactoe.playerOnField(board, minorX + 3*minorY);
 							final char c = computeChar(game, majorIndex, player);
 							result[BORDERED_SMALL_SIZE*majorY + minorY][BORDERED_SMALL_SIZE*majorX + minorX] = c;
 						}
@@ -67,6 +68,18 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 		return asString();
 	}
 
+	@Override public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof Ultimatoe)) return false;
+		final Ultimatoe that = (Ultimatoe) obj;
+		// The turn and the winner are functions of the boards.
+		return hash64 == that.hash64 && possibilities == that.possibilities && Arrays.equals(boards, that.boards);
+	}
+
+	@Override public int hashCode() {
+		return Long.hashCode(hash64);
+	}
+
 	@Override public String asString() {
 		return ToStringHelper.toString(this);
 	}
@@ -84,13 +97,18 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 		throw new RuntimeException("impossible");
 	}
 
+	/** Return the hash of the canonical representative, see {@link UltimatoeSymmetry#canonical(Ultimatoe)}. */
+	@Override public long canonicalHash64() {
+		return UltimatoeSymmetry.canonical(this).hash64();
+	}
+
 	@Override public ImmutableBiMap<Ultimatoe, String> children() {
 		final ImmutableBiMap.Builder<Ultimatoe, String> result = ImmutableBiMap.builder();
 		for (int i=0; i<N_BOARDS; ++i) {
 			if (!isPlayable(i)) continue;
-			final Tictactoe b = boards[i];
+			final int p = Tictactoe.possibilities(boards[i]);
 			for (int j=0; j<N_FIELDS_PER_BOARD; ++j) {
-				if (!b.isPlayable(j)) continue;
+				if ((p & (1<<j)) == 0) continue;
 				result.put(play(i, j), UltimatoeUtils.indexesToMoveString(i, j));
 			}
 		}
@@ -99,40 +117,87 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 
 	@Override public Ultimatoe play(String move) {
 		checkNotNull(move);
-		final int majorIndex = UltimatoeUtils.stringToMajorIndex(move);
-		final int minorIndex = UltimatoeUtils.stringToMinorIndex(move);
+		return play(parseMove(move));
+	}
+
+	@SuppressWarnings("boxing") @Override public Ultimatoe play(int move) {
+		checkArgument(0<=move && move<N_MOVE_CODES, "Invalid move code %s", move);
+		final int majorIndex = move / N_FIELDS_PER_BOARD;
+		final int minorIndex = move % N_FIELDS_PER_BOARD;
+		checkArgument(isPlayable(majorIndex) && (Tictactoe.possibilities(boards[majorIndex]) & (1<<minorIndex)) != 0,
+				"Illegal move %s%s for \n%s", majorIndex, minorIndex, this);
 		return play(majorIndex, minorIndex);
 	}
 
-	@Override public Ultimatoe play(Random random) {
-		checkNotNull(random);
-		if (Integer.bitCount(possibilities) == 1) { // TODO measure if it's worth it.
-			final int i = Integer.numberOfTrailingZeros(possibilities);
-			return play(i, random);
-		}
-		int countdown = random.nextInt(childrenCount());
+	@Override public int moves(int[] result) {
+		int n = 0;
 		for (int i=0; i<N_BOARDS; ++i) {
 			if (!isPlayable(i)) continue;
-			countdown -= Integer.bitCount(boards[i].possibilities());
-			if (countdown<=0) return play(i, random);
+			final int possibilities = Tictactoe.possibilities(boards[i]);
+			for (int j=0; j<N_FIELDS_PER_BOARD; ++j) {
+				if ((possibilities & (1<<j)) != 0) result[n++] = N_FIELDS_PER_BOARD*i + j;
+			}
 		}
-		throw new RuntimeException("impossible");
+		return n;
 	}
 
-	/** Return the game state resulting from applying a random move on the board given by the argument. */
-	private Ultimatoe play(int majorIndex, Random random) {
-		final int possibilities = boards[majorIndex].possibilities();
-		while (true) {
-			final int j = random.nextInt(N_FIELDS_PER_BOARD);
-			if ((possibilities & (1<<j)) == 0) continue;
-			return checkNotNull(play(majorIndex, j));
-		}
+	@Override public int nMoveCodes() {
+		return N_MOVE_CODES;
 	}
 
-	private int childrenCount() {
-		int result = 0;
-		for (final Tictactoe b : boards) result += Integer.bitCount(b.possibilities());
-		return result;
+	@Override public String moveToString(int move) {
+		return UltimatoeUtils.moveToString(move);
+	}
+
+	@Override public int parseMove(String move) {
+		return UltimatoeUtils.stringToMove(move);
+	}
+
+	@Override public UltimatoeBoard newBoard() {
+		return new UltimatoeBoard().load(this);
+	}
+
+	@Override public Ultimatoe play(Random random) {
+		checkNotNull(random);
+		checkArgument(!isFinished());
+		final int move = randomMove(random, possibilities, boards);
+		return play(move / N_FIELDS_PER_BOARD, move % N_FIELDS_PER_BOARD);
+	}
+
+	/**
+	 * Return the code of a uniformly chosen possible move.
+	 *
+	 * <p>This is what {@link #play(Random)} uses, but without creating any objects.
+	 *
+	 * @throws IllegalStateException if the game has already finished.
+	 */
+	public int randomMove(Random random) {
+		checkState(!isFinished());
+		return randomMove(random, possibilities, boards);
+	}
+
+	/**
+	 * Return the code of a uniformly chosen move playable on the given boards, which must not be all finished.
+	 *
+	 * <p>This is exact, as a single random number gets drawn among all possible moves,
+	 * which then gets located by a walk over at most 9 boards and a table lookup.
+	 */
+	static int randomMove(Random random, int possibilities, short[] boards) {
+		if ((possibilities & (possibilities-1)) == 0) {
+			final int majorIndex = Integer.numberOfTrailingZeros(possibilities);
+			final int p = Tictactoe.possibilities(boards[majorIndex]);
+			return N_FIELDS_PER_BOARD*majorIndex + UltimatoeUtils.nthSetBit(p, random.nextInt(Integer.bitCount(p)));
+		}
+		int count = 0;
+		for (int m=possibilities; m!=0; m&=m-1) count += Integer.bitCount(Tictactoe.possibilities(boards[Integer.numberOfTrailingZeros(m)]));
+		int n = random.nextInt(count);
+		for (int m=possibilities; ; m&=m-1) {
+			final int majorIndex = Integer.numberOfTrailingZeros(m);
+			final int p = Tictactoe.possibilities(boards[majorIndex]);
+			final int bitCount = Integer.bitCount(p);
+			if (n < bitCount) return N_FIELDS_PER_BOARD*majorIndex + UltimatoeUtils.nthSetBit(p, n);
+			n -= bitCount;
+		}
 	}
 
 	/**
@@ -141,37 +206,74 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 	 * @param majorIndex the index of the board, must be between 0 and 8
 	 * @param minorIndex the index of field of the board, must be between 0 and 8
 	 */
-	@SuppressWarnings("boxing") private Ultimatoe play(int majorIndex, int minorIndex) {
-		final Tictactoe oldBoard = boards[majorIndex];
-		final Tictactoe newBoard = oldBoard.play(minorIndex, playerOnTurn());
-		checkNotNull(newBoard, "Illegal move %s%s for \n%s", majorIndex, minorIndex, this);
-		final Tictactoe[] newBoards = boards.clone();
-		newBoards[majorIndex] = newBoard;
-
-		final boolean sameWinner = oldBoard.winner() == newBoard.winner();
+	private Ultimatoe play(int majorIndex, int minorIndex) {
+		final int oldBoard = boards[majorIndex];
+		final int newBoard = Tictactoe.play(oldBoard, minorIndex, turn & 1);
+		final short[] newBoards = boards.clone();
+		newBoards[majorIndex] = (short) newBoard;
+
+		final boolean sameWinner = Tictactoe.winner(oldBoard) == Tictactoe.winner(newBoard);
 		final StandardPlayer newWinner = sameWinner ? StandardPlayer.NOBODY : computeWinner(newBoards);
 		final int newMovesBitmask = computeMovesBitmask(minorIndex, newBoards, newWinner);
-		return new Ultimatoe(turn+1, newMovesBitmask, newWinner, newBoards);
+		final long newHash64 = hash64
+				^ UltimatoeUtils.pieceKey(turn & 1, N_FIELDS_PER_BOARD*majorIndex + minorIndex)
+				^ UltimatoeUtils.possibilitiesKey(possibilities)
+				^ UltimatoeUtils.possibilitiesKey(newMovesBitmask);
+		return new Ultimatoe(turn+1, newMovesBitmask, newWinner, newBoards, newHash64);
+	}
+
+	/**
+	 * Create a game from its boards and possibilities, deriving all other fields.
+	 *
+	 * @throws IllegalArgumentException if the arguments can't represent a reachable state.
+	 */
+	static Ultimatoe create(short[] boards, int possibilities) {
+		checkArgument(boards.length == N_BOARDS);
+		int turn = 0;
+		int xCount = 0;
+		long hash64 = UltimatoeUtils.possibilitiesKey(possibilities);
+		for (int i=0; i<N_BOARDS; ++i) {
+			for (int j=0; j<N_FIELDS_PER_BOARD; ++j) {
+				final StandardPlayer player = Tictactoe.playerOnField(boards[i], j);
+				if (player.isDummy()) continue;
+				++turn;
+				if (player == StandardPlayer.PLAYER_X) ++xCount;
+				hash64 ^= UltimatoeUtils.pieceKey(player.ordinal(), N_FIELDS_PER_BOARD*i + j);
+			}
+		}
+		checkArgument(xCount == turn - xCount || xCount == turn - xCount + 1, "Wrong number of pieces");
+		final StandardPlayer winner = computeWinner(boards);
+		int unfinished = 0;
+		for (int i=0; i<N_BOARDS; ++i) {
+			if (winner.isDummy() && Tictactoe.possibilities(boards[i]) != 0) unfinished |= 1 << i;
+		}
+		checkArgument((possibilities & ~unfinished) == 0, "Finished boards can't be playable");
+		checkArgument(possibilities != 0 || unfinished == 0, "Unfinished game must have a playable board");
+		return new Ultimatoe(turn, possibilities, winner, boards, hash64);
 	}
 
-	private static int computeMovesBitmask(int lastMinorIndex, Tictactoe[] boards, StandardPlayer winner) {
+	static int computeMovesBitmask(int lastMinorIndex, short[] boards, StandardPlayer winner) {
 		if (!winner.isDummy()) return 0;
-		if (!boards[lastMinorIndex].isFinished()) return 1 << lastMinorIndex;
+		if (Tictactoe.possibilities(boards[lastMinorIndex]) != 0) return 1 << lastMinorIndex;
 		int result = 0;
 		for (int i=0; i<N_BOARDS; ++i) {
-			if (!boards[i].isFinished()) result |= 1 << i;
+			if (Tictactoe.possibilities(boards[i]) != 0) result |= 1 << i;
 		}
 		return result;
 	}
 
-	private static final StandardPlayer computeWinner(Tictactoe[] boards) {
-		for (final int[] winningSet : UltimatoeUtils.WINNING_SETS) {
-			final StandardPlayer player = boards[winningSet[0]].winner();
-			if (player.isDummy()) continue;
-			if (player != boards[winningSet[1]].winner()) continue;
-			if (player != boards[winningSet[2]].winner()) continue;
-			return player;
+	static StandardPlayer computeWinner(short[] boards) {
+		int xMask = 0;
+		int oMask = 0;
+		for (int i=0; i<N_BOARDS; ++i) {
+			switch (Tictactoe.winner(boards[i])) {
+				case PLAYER_X: xMask |= 1<<i; break;
+				case PLAYER_O: oMask |= 1<<i; break;
+				case NOBODY: break;
+			}
 		}
+		if (UltimatoeUtils.isWin(xMask)) return StandardPlayer.PLAYER_X;
+		if (UltimatoeUtils.isWin(oMask)) return StandardPlayer.PLAYER_O;
 		return StandardPlayer.NOBODY;
 	}
 
@@ -184,6 +286,11 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 	}
 
 	Tictactoe tictactoe(int index) {
+		return Tictactoe.forState(boards[index]);
+	}
+
+	/** Return the state id of the board given by the argument, see {@link Tictactoe}. */
+	int board(int index) {
 		return boards[index];
 	}
 
@@ -192,23 +299,26 @@ public final class Ultimatoe implements Game<Ultimatoe> {
 		return ((possibilities>>majorIndex) & 1) != 0;
 	}
 
-	private static final int N_BOARDS = 9;
-	private static final int N_FIELDS_PER_BOARD = 9;
+	static final int N_BOARDS = 9;
+	static final int N_FIELDS_PER_BOARD = 9;
+	static final int N_MOVE_CODES = N_BOARDS * N_FIELDS_PER_BOARD;
 
 	public static final Ultimatoe INITIAL_GAME = new Ultimatoe(
-			0, (1<<N_BOARDS) - 1, StandardPlayer.NOBODY, new Tictactoe[] {
-				Tictactoe.INITIAL_GAME, Tictactoe.INITIAL_GAME, Tictactoe.INITIAL_GAME,
-				Tictactoe.INITIAL_GAME, Tictactoe.INITIAL_GAME, Tictactoe.INITIAL_GAME,
-				Tictactoe.INITIAL_GAME, Tictactoe.INITIAL_GAME, Tictactoe.INITIAL_GAME,
-			});
+			0, (1<<N_BOARDS) - 1, StandardPlayer.NOBODY, new short[N_BOARDS], UltimatoeUtils.possibilitiesKey((1<<N_BOARDS) - 1));
 
 	@Getter private final int turn;
 
 	/** Contains one bit per board. See {@link #isPlayable(int)}*/
-	private final int possibilities;
+	@Getter(AccessLevel.PACKAGE) private final int possibilities;
 
 	@Getter @NonNull private final StandardPlayer winner;
 
-	/** The 9 boards of the game, from left to right, then top to bottom. */
-	private final Tictactoe[] boards;
+	/** The state ids of the 9 boards of the game, from left to right, then top to bottom. See {@link Tictactoe}. */
+	private final short[] boards;
+
+	/**
+	 * The Zobrist hash, i.e., the xor of the keys of all pieces and of the possibilities,
+	 * see {@link UltimatoeUtils#pieceKey(int, int)}.
+	 */
+	@Getter private final long hash64;
 }
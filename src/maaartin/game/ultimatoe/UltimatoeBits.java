@@ -0,0 +1,299 @@
+package maaartin.game.ultimatoe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Random;
+
+import javax.annotation.concurrent.Immutable;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+
+import maaartin.game.Game;
+import maaartin.game.GamePlayer;
+import maaartin.game.GameRandom;
+import maaartin.game.StandardPlayer;
+
+/**
+ * A bitboard representation of {@link Ultimatoe}, behaving exactly the same, but packed into three longs.
+ *
+ * <p>Every player has an 81-bit occupancy mask using the bit {@code 9 * majorIndex + minorIndex},
+ * i.e., the same index as the move code. The bits of boards 0 to 6 fit into one long per player,
+ * the remaining bits get packed together with the 9-bit masks of the boards won by each player
+ * and the 9-bit {@code possibilities} mask. Everything else (turn, winner) gets derived.
+ */
+@RequiredArgsConstructor(access=AccessLevel.PRIVATE) @EqualsAndHashCode @Immutable
+public final class UltimatoeBits implements Game<UltimatoeBits> {
+	/** Return the bitboard equivalent of the given game. */
+	public static UltimatoeBits from(Ultimatoe game) {
+		long xLow = 0;
+		long oLow = 0;
+		long high = (long) game.possibilities() << POSSIBILITIES_SHIFT;
+		for (int i=0; i<N_BOARDS; ++i) {
+			final Tictactoe board = game.tictactoe(i);
+			for (int j=0; j<N_FIELDS_PER_BOARD; ++j) {
+				final StandardPlayer player = board.getPlayerOnField(j);
+				if (player.isDummy()) continue;
+				final int index = N_FIELDS_PER_BOARD*i + j;
+				if (index < HIGH_BOARDS_START) {
+					if (player == StandardPlayer.PLAYER_X) xLow |= 1L << index; else oLow |= 1L << index;
+				} else {
+					final int shift = player == StandardPlayer.PLAYER_X ? X_HIGH_SHIFT : O_HIGH_SHIFT;
+					high |= 1L << (index - HIGH_BOARDS_START + shift);
+				}
+			}
+			if (board.winner() == StandardPlayer.PLAYER_X) high |= 1L << (X_WON_SHIFT + i);
+			if (board.winner() == StandardPlayer.PLAYER_O) high |= 1L << (O_WON_SHIFT + i);
+		}
+		return new UltimatoeBits(xLow, oLow, high);
+	}
+
+	@Override public ImmutableList<GamePlayer> players() {
+		return StandardPlayer.PLAYERS;
+	}
+
+	@Override public int turn() {
+		return Long.bitCount(xLow) + Long.bitCount(oLow) + Long.bitCount(high & HIGH_OCCUPANCY_MASK);
+	}
+
+	@Override public GamePlayer playerOnTurn() {
+		return StandardPlayer.PLAYERS.get(turn() & 1);
+	}
+
+	@Override public StandardPlayer winner() {
+		if (isWin(wonMask(X_WON_SHIFT))) return StandardPlayer.PLAYER_X;
+		if (isWin(wonMask(O_WON_SHIFT))) return StandardPlayer.PLAYER_O;
+		return StandardPlayer.NOBODY;
+	}
+
+	@Override public double score() {
+		switch (winner()) {
+			case NOBODY: return 0;
+			case PLAYER_X: return +1;
+			case PLAYER_O: return -1;
+		}
+		throw new RuntimeException("impossible");
+	}
+
+	@Override public boolean isFinished() {
+		return possibilities() == 0;
+	}
+
+	/** Return the same hash as {@link Ultimatoe#hash64()}. As it's not stored, it gets computed from scratch. */
+	@Override public long hash64() {
+		long result = UltimatoeUtils.possibilitiesKey(possibilities());
+		for (long m=xLow; m!=0; m&=m-1) result ^= UltimatoeUtils.pieceKey(0, Long.numberOfTrailingZeros(m));
+		for (long m=oLow; m!=0; m&=m-1) result ^= UltimatoeUtils.pieceKey(1, Long.numberOfTrailingZeros(m));
+		for (long m=high & HIGH_BOARDS_MASK; m!=0; m&=m-1) {
+			result ^= UltimatoeUtils.pieceKey(0, HIGH_BOARDS_START + Long.numberOfTrailingZeros(m));
+		}
+		for (long m=(high >>> O_HIGH_SHIFT) & HIGH_BOARDS_MASK; m!=0; m&=m-1) {
+			result ^= UltimatoeUtils.pieceKey(1, HIGH_BOARDS_START + Long.numberOfTrailingZeros(m));
+		}
+		return result;
+	}
+
+	@Override public ImmutableBiMap<UltimatoeBits, String> children() {
+		final ImmutableBiMap.Builder<UltimatoeBits, String> result = ImmutableBiMap.builder();
+		final int[] moves = new int[N_MOVE_CODES];
+		final int length = moves(moves);
+		for (int i=0; i<length; ++i) result.put(play(moves[i]), moveToString(moves[i]));
+		return result.build();
+	}
+
+	@Override public UltimatoeBits play(String move) {
+		checkNotNull(move);
+		return play(parseMove(move));
+	}
+
+	@SuppressWarnings("boxing") @Override public UltimatoeBits play(int move) {
+		checkArgument(0<=move && move<N_MOVE_CODES, "Invalid move code %s", move);
+		checkArgument(isLegal(move), "Illegal move %s for \n%s", move, this);
+		final int majorIndex = move / N_FIELDS_PER_BOARD;
+		final int minorIndex = move % N_FIELDS_PER_BOARD;
+		final boolean isX = (turn() & 1) == 0;
+		long xLow = this.xLow;
+		long oLow = this.oLow;
+		long high = this.high & ~POSSIBILITIES_MASK;
+		if (move < HIGH_BOARDS_START) {
+			if (isX) xLow |= 1L << move; else oLow |= 1L << move;
+		} else {
+			high |= 1L << (move - HIGH_BOARDS_START + (isX ? X_HIGH_SHIFT : O_HIGH_SHIFT));
+		}
+		final int wonShift = isX ? X_WON_SHIFT : O_WON_SHIFT;
+		final int playerMask = isX ? xMask(xLow, high, majorIndex) : oMask(oLow, high, majorIndex);
+		if (isWin(playerMask)) {
+			high |= 1L << (wonShift + majorIndex);
+			if (isWin((int) (high >>> wonShift) & BOARD_MASK)) return new UltimatoeBits(xLow, oLow, high);
+		}
+		final int possibilities = computePossibilities(minorIndex, xLow, oLow, high);
+		return new UltimatoeBits(xLow, oLow, high | (long) possibilities << POSSIBILITIES_SHIFT);
+	}
+
+	private static int computePossibilities(int lastMinorIndex, long xLow, long oLow, long high) {
+		final int decided = (int) (high >>> X_WON_SHIFT | high >>> O_WON_SHIFT) & BOARD_MASK;
+		if (!isDecided(lastMinorIndex, decided, xLow, oLow, high)) return 1 << lastMinorIndex;
+		int result = 0;
+		for (int i=0; i<N_BOARDS; ++i) {
+			if (!isDecided(i, decided, xLow, oLow, high)) result |= 1 << i;
+		}
+		return result;
+	}
+
+	private static boolean isDecided(int majorIndex, int decided, long xLow, long oLow, long high) {
+		if ((decided & (1<<majorIndex)) != 0) return true;
+		return (xMask(xLow, high, majorIndex) | oMask(oLow, high, majorIndex)) == BOARD_MASK;
+	}
+
+	@Override public int moves(int[] result) {
+		int n = 0;
+		for (long m=legalLow(); m!=0; m&=m-1) result[n++] = Long.numberOfTrailingZeros(m);
+		for (long m=legalHigh(); m!=0; m&=m-1) result[n++] = HIGH_BOARDS_START + Long.numberOfTrailingZeros(m);
+		return n;
+	}
+
+	@Override public int nMoveCodes() {
+		return N_MOVE_CODES;
+	}
+
+	@Override public String moveToString(int move) {
+		return UltimatoeUtils.moveToString(move);
+	}
+
+	@Override public int parseMove(String move) {
+		return UltimatoeUtils.stringToMove(move);
+	}
+
+	@Override public UltimatoeBits play(Random random) {
+		checkNotNull(random);
+		checkState(!isFinished());
+		final long legalLow = legalLow();
+		final long legalHigh = legalHigh();
+		final int lowCount = Long.bitCount(legalLow);
+		final int n = random.nextInt(lowCount + Long.bitCount(legalHigh));
+		if (n < lowCount) return play(GameRandom.nthSetBit(legalLow, n));
+		return play(HIGH_BOARDS_START + GameRandom.nthSetBit(legalHigh, n - lowCount));
+	}
+
+	@Override public String toString() {
+		return asString();
+	}
+
+	/** Return the same representation as {@link Ultimatoe#asString()}. */
+	@Override public String asString() {
+		final StringBuilder result = new StringBuilder();
+		for (int y=0; y<BORDERED_BIG_SIZE; ++y) {
+			if (y>0) result.append("\n");
+			for (int x=0; x<BORDERED_BIG_SIZE; ++x) result.append(charAt(x, y));
+		}
+		return result.toString();
+	}
+
+	private char charAt(int borderedX, int borderedY) {
+		if (borderedX%BORDERED_SMALL_SIZE == 3 || borderedY%BORDERED_SMALL_SIZE == 3) return UltimatoeUtils.BORDER;
+		final int majorIndex = borderedX/BORDERED_SMALL_SIZE + 3 * (borderedY/BORDERED_SMALL_SIZE);
+		final int minorBit = 1 << (borderedX%BORDERED_SMALL_SIZE + 3 * (borderedY%BORDERED_SMALL_SIZE));
+		if ((xMask(xLow, high, majorIndex) & minorBit) != 0) return StandardPlayer.PLAYER_X.toChar();
+		if ((oMask(oLow, high, majorIndex) & minorBit) != 0) return StandardPlayer.PLAYER_O.toChar();
+		return (possibilities() & (1<<majorIndex)) != 0 ? UltimatoeUtils.PLAYABLE : UltimatoeUtils.NON_PLAYABLE;
+	}
+
+	private boolean isLegal(int move) {
+		if (move < HIGH_BOARDS_START) return (legalLow() & (1L << move)) != 0;
+		return (legalHigh() & (1L << (move - HIGH_BOARDS_START))) != 0;
+	}
+
+	/** Return the mask of allowed moves on boards 0 to 6, using the bit {@code move}. */
+	private long legalLow() {
+		return ~(xLow | oLow) & EXPANDED_LOW_POSSIBILITIES[possibilities() & (1<<HIGH_BOARDS) - 1];
+	}
+
+	/** Return the mask of allowed moves on boards 7 and 8, using the bit {@code move - 63}. */
+	private long legalHigh() {
+		final long occupied = (high | high >>> O_HIGH_SHIFT) & HIGH_BOARDS_MASK;
+		return ~occupied & EXPANDED_HIGH_POSSIBILITIES[possibilities() >> HIGH_BOARDS];
+	}
+
+	private int possibilities() {
+		return (int) (high >>> POSSIBILITIES_SHIFT) & BOARD_MASK;
+	}
+
+	private int wonMask(int shift) {
+		return (int) (high >>> shift) & BOARD_MASK;
+	}
+
+	/** Return the 9-bit mask of fields of the given board occupied by player X. */
+	private static int xMask(long xLow, long high, int majorIndex) {
+		if (majorIndex < HIGH_BOARDS) return (int) (xLow >>> (N_FIELDS_PER_BOARD*majorIndex)) & BOARD_MASK;
+		return (int) (high >>> (X_HIGH_SHIFT + N_FIELDS_PER_BOARD*(majorIndex-HIGH_BOARDS))) & BOARD_MASK;
+	}
+
+	/** Return the 9-bit mask of fields of the given board occupied by player O. */
+	private static int oMask(long oLow, long high, int majorIndex) {
+		if (majorIndex < HIGH_BOARDS) return (int) (oLow >>> (N_FIELDS_PER_BOARD*majorIndex)) & BOARD_MASK;
+		return (int) (high >>> (O_HIGH_SHIFT + N_FIELDS_PER_BOARD*(majorIndex-HIGH_BOARDS))) & BOARD_MASK;
+	}
+
+	private static boolean isWin(int mask) {
+		return UltimatoeUtils.isWin(mask);
+	}
+
+	/** Return an array mapping a mask of boards to the mask of all their fields. */
+	private static long[] createExpandedPossibilities(int nBoards) {
+		final long[] result = new long[1 << nBoards];
+		for (int i=0; i<result.length; ++i) {
+			for (int j=0; j<nBoards; ++j) {
+				if ((i & (1<<j)) != 0) result[i] |= (long) BOARD_MASK << (N_FIELDS_PER_BOARD*j);
+			}
+		}
+		return result;
+	}
+
+	private static final int N_BOARDS = Ultimatoe.N_BOARDS;
+	private static final int N_FIELDS_PER_BOARD = Ultimatoe.N_FIELDS_PER_BOARD;
+	private static final int N_MOVE_CODES = Ultimatoe.N_MOVE_CODES;
+	private static final int BOARD_MASK = (1<<N_FIELDS_PER_BOARD) - 1;
+
+	/** The number of boards stored in the low longs. */
+	private static final int HIGH_BOARDS = 7;
+	private static final int HIGH_BOARDS_START = HIGH_BOARDS * N_FIELDS_PER_BOARD;
+	private static final long HIGH_BOARDS_MASK = (1L << (N_MOVE_CODES - HIGH_BOARDS_START)) - 1;
+
+	private static final int X_HIGH_SHIFT = 0;
+	private static final int O_HIGH_SHIFT = 18;
+	private static final int X_WON_SHIFT = 36;
+	private static final int O_WON_SHIFT = 45;
+	private static final int POSSIBILITIES_SHIFT = 54;
+	private static final long HIGH_OCCUPANCY_MASK = (1L << X_WON_SHIFT) - 1;
+	private static final long POSSIBILITIES_MASK = (long) BOARD_MASK << POSSIBILITIES_SHIFT;
+
+	private static final int BORDERED_SMALL_SIZE = 4;
+	private static final int BORDERED_BIG_SIZE = 11;
+
+	private static final long[] EXPANDED_LOW_POSSIBILITIES = createExpandedPossibilities(HIGH_BOARDS);
+	private static final long[] EXPANDED_HIGH_POSSIBILITIES = createExpandedPossibilities(N_BOARDS - HIGH_BOARDS);
+
+	public static final UltimatoeBits INITIAL_GAME = new UltimatoeBits(0, 0, POSSIBILITIES_MASK);
+
+	/** The fields of boards 0 to 6 occupied by player X. */
+	private final long xLow;
+
+	/** The fields of boards 0 to 6 occupied by player O. */
+	private final long oLow;
+
+	/**
+	 * The packed rest of the state, namely (starting from the least significant bit)<ul>
+	 * <li>18 bits: fields of boards 7 and 8 occupied by player X
+	 * <li>18 bits: fields of boards 7 and 8 occupied by player O
+	 * <li>9 bits: boards won by player X
+	 * <li>9 bits: boards won by player O
+	 * <li>9 bits: boards where the player on turn may play, see {@link Ultimatoe#isPlayable(int)}.</ul>
+	 */
+	private final long high;
+}
@@ -0,0 +1,168 @@
+package maaartin.game.ultimatoe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import maaartin.game.GameBoard;
+import maaartin.game.GamePlayer;
+import maaartin.game.StandardPlayer;
+
+/**
+ * A mutable counterpart of {@link Ultimatoe}.
+ *
+ * <p>All the state lives in preallocated arrays, so that neither {@link #make(int)} nor {@link #unmake()} allocate.
+ * As no game takes more than 81 moves, the undo stack has a fixed size.
+ */
+@NotThreadSafe public final class UltimatoeBoard implements GameBoard<Ultimatoe> {
+	@Override public UltimatoeBoard load(Ultimatoe game) {
+		checkNotNull(game);
+		for (int i=0; i<Ultimatoe.N_BOARDS; ++i) boards[i] = (short) game.board(i);
+		turn = game.turn();
+		possibilities = game.possibilities();
+		winner = game.winner();
+		hash64 = game.hash64();
+		depth = 0;
+		return this;
+	}
+
+	@Override public Ultimatoe toGame() {
+		return new Ultimatoe(turn, possibilities, winner, boards.clone(), hash64);
+	}
+
+	@Override public GamePlayer playerOnTurn() {
+		return StandardPlayer.PLAYERS.get(turn & 1);
+	}
+
+	@Override public boolean isFinished() {
+		return possibilities == 0;
+	}
+
+	@Override public double score() {
+		switch (winner) {
+			case NOBODY: return 0;
+			case PLAYER_X: return +1;
+			case PLAYER_O: return -1;
+		}
+		throw new RuntimeException("impossible");
+	}
+
+	@Override public int moves(int[] result) {
+		int n = 0;
+		for (int i=0; i<Ultimatoe.N_BOARDS; ++i) {
+			if ((possibilities & (1<<i)) == 0) continue;
+			for (int p=Tictactoe.possibilities(boards[i]); p!=0; p&=p-1) {
+				result[n++] = Ultimatoe.N_FIELDS_PER_BOARD*i + Integer.numberOfTrailingZeros(p);
+			}
+		}
+		return n;
+	}
+
+	@Override public int randomMove(Random random) {
+		checkState(!isFinished());
+		return Ultimatoe.randomMove(random, possibilities, boards);
+	}
+
+	/** Unlike the default implementation, this skips all checks, as the random moves are legal by construction. */
+	@Override public double playout(Random random) {
+		while (possibilities != 0) makeUnchecked(Ultimatoe.randomMove(random, possibilities, boards));
+		return score();
+	}
+
+	/** Skips all checks like {@link #playout(Random)}. */
+	@Override public double playout(Random random, IntConsumer moveConsumer) {
+		while (possibilities != 0) {
+			final int move = Ultimatoe.randomMove(random, possibilities, boards);
+			moveConsumer.accept(move);
+			makeUnchecked(move);
+		}
+		return score();
+	}
+
+	@SuppressWarnings("boxing") @Override public void make(int move) {
+		checkArgument(0<=move && move<Ultimatoe.N_MOVE_CODES, "Invalid move code %s", move);
+		final int majorIndex = move / Ultimatoe.N_FIELDS_PER_BOARD;
+		final int minorIndex = move % Ultimatoe.N_FIELDS_PER_BOARD;
+		checkArgument((possibilities & (1<<majorIndex)) != 0 && (Tictactoe.possibilities(boards[majorIndex]) & (1<<minorIndex)) != 0,
+				"Illegal move %s", move);
+		makeUnchecked(move);
+	}
+
+	/** Make the move without any checks, it must be legal. */
+	void makeUnchecked(int move) {
+		final int majorIndex = move / Ultimatoe.N_FIELDS_PER_BOARD;
+		final int minorIndex = move % Ultimatoe.N_FIELDS_PER_BOARD;
+		final int oldBoard = boards[majorIndex];
+		final int newBoard = Tictactoe.play(oldBoard, minorIndex, turn & 1);
+
+		undoBoards[depth] = (short) oldBoard;
+		undoHashes[depth] = hash64;
+		undoStack[depth] = majorIndex | possibilities << UNDO_POSSIBILITIES_SHIFT | winner.ordinal() << UNDO_WINNER_SHIFT;
+		++depth;
+
+		boards[majorIndex] = (short) newBoard;
+		if (Tictactoe.winner(oldBoard) != Tictactoe.winner(newBoard)) winner = Ultimatoe.computeWinner(boards);
+		final int newPossibilities = Ultimatoe.computeMovesBitmask(minorIndex, boards, winner);
+		hash64 ^= UltimatoeUtils.pieceKey(turn & 1, move)
+				^ UltimatoeUtils.possibilitiesKey(possibilities)
+				^ UltimatoeUtils.possibilitiesKey(newPossibilities);
+		possibilities = newPossibilities;
+		++turn;
+	}
+
+	@Override public void unmake() {
+		checkState(depth>0);
+		--depth;
+		final int undo = undoStack[depth];
+		boards[undo & UNDO_MAJOR_INDEX_MASK] = undoBoards[depth];
+		possibilities = (undo >> UNDO_POSSIBILITIES_SHIFT) & UNDO_POSSIBILITIES_MASK;
+		winner = (StandardPlayer) StandardPlayer.PLAYERS.get(undo >> UNDO_WINNER_SHIFT);
+		hash64 = undoHashes[depth];
+		--turn;
+	}
+
+	/** Return the state id of the board given by the argument, see {@link Tictactoe}. */
+	int board(int index) {
+		return boards[index];
+	}
+
+	private static final int MAX_DEPTH = Ultimatoe.N_MOVE_CODES;
+
+	private static final int UNDO_MAJOR_INDEX_MASK = 15;
+	private static final int UNDO_POSSIBILITIES_SHIFT = 4;
+	private static final int UNDO_POSSIBILITIES_MASK = (1<<Ultimatoe.N_BOARDS) - 1;
+	private static final int UNDO_WINNER_SHIFT = UNDO_POSSIBILITIES_SHIFT + Ultimatoe.N_BOARDS;
+
+	/** The state ids of the 9 boards of the game, from left to right, then top to bottom. See {@link Tictactoe}. */
+	private final short[] boards = new short[Ultimatoe.N_BOARDS];
+
+	@Getter private int turn;
+
+	/** Contains one bit per board. See {@link Ultimatoe#isPlayable(int)}*/
+	@Getter(AccessLevel.PACKAGE) private int possibilities;
+
+	private StandardPlayer winner;
+
+	/** See {@link Ultimatoe#hash64()}. */
+	@Getter private long hash64;
+
+	/** The number of moves which can be undone. */
+	private int depth;
+
+	/** The boards replaced by the moves, indexed by {@link #depth}. */
+	private final short[] undoBoards = new short[MAX_DEPTH];
+
+	/** The packed major index, possibilities and winner before the moves, indexed by {@link #depth}. */
+	private final int[] undoStack = new int[MAX_DEPTH];
+
+	/** The hashes before the moves, indexed by {@link #depth}. */
+	private final long[] undoHashes = new long[MAX_DEPTH];
+}
@@ -0,0 +1,35 @@
+package maaartin.game.ultimatoe;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import maaartin.game.GameActor;
+import maaartin.game.ai.GameAlphaBetaActor;
+import maaartin.game.ai.GameMonteCarloActor;
+import maaartin.game.ai.book.GameBookGenerator;
+
+/** Generates the opening book for {@link Ultimatoe}, see {@link GameBookGenerator}. */
+public final class UltimatoeBook {
+	public static void main(String[] args) throws IOException {
+		final Path path = Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE_NAME);
+
+		// The actor used in the matches, so that the book covers the positions occurring there.
+		final GameActor sampler = new GameMonteCarloActor();
+		sampler.parameters().budget(1000);
+
+		final GameActor searcher = new GameAlphaBetaActor(new UltimatoeEvaluator());
+		searcher.parameters().millisPerMove(2000).maxSearchDepth(Ultimatoe.N_MOVE_CODES);
+
+		System.out.println("Generating the opening book into " + path.toAbsolutePath() + ".");
+		new GameBookGenerator<>(Ultimatoe.INITIAL_GAME, sampler, searcher).progressListener(UltimatoeBook::printProgress).generate(path);
+	}
+
+	private static void printProgress(int nSearched) {
+		if (nSearched % PROGRESS_INTERVAL == 0) System.out.format("Searched %d positions.%n", nSearched);
+	}
+
+	public static final String DEFAULT_FILE_NAME = "ultimatoe.book";
+
+	private static final int PROGRESS_INTERVAL = 100;
+}
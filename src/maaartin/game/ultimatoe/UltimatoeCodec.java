@@ -0,0 +1,79 @@
+package maaartin.game.ultimatoe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.Immutable;
+
+import maaartin.game.GameCodec;
+
+/**
+ * The codec for {@link Ultimatoe}.
+ *
+ * <p>The binary form consists of 9 shorts, one per board. Its lower 15 bits hold the state id (see {@link Tictactoe}),
+ * the highest bit tells if the board is playable. Everything else (the turn, the winner and the hash) gets derived.
+ */
+@Immutable public final class UltimatoeCodec implements GameCodec<Ultimatoe> {
+	private UltimatoeCodec() {
+	}
+
+	@Override public int encodedLength() {
+		return Ultimatoe.N_BOARDS * Short.BYTES;
+	}
+
+	@Override public void encode(Ultimatoe game, ByteBuffer buffer) {
+		for (int i=0; i<Ultimatoe.N_BOARDS; ++i) {
+			final int playable = game.isPlayable(i) ? PLAYABLE_BIT : 0;
+			buffer.putShort((short) (game.board(i) | playable));
+		}
+	}
+
+	@Override public Ultimatoe decode(ByteBuffer buffer) {
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		int possibilities = 0;
+		for (int i=0; i<Ultimatoe.N_BOARDS; ++i) {
+			final int x = buffer.getShort() & 0xFFFF;
+			if ((x & PLAYABLE_BIT) != 0) possibilities |= 1 << i;
+			final int state = x & ~PLAYABLE_BIT;
+			checkArgument(state < Tictactoe.N_STATES);
+			boards[i] = (short) state;
+		}
+		return Ultimatoe.create(boards, possibilities);
+	}
+
+	/** Parse the 11x11 grid produced by {@link Ultimatoe#asString()}. */
+	@SuppressWarnings("boxing") @Override public Ultimatoe parse(String string) {
+		checkArgument(string.length() == GRID_SIZE * (GRID_SIZE+1) - 1, "Wrong length");
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		int possibilities = 0;
+		for (int y=0; y<GRID_SIZE; ++y) {
+			for (int x=0; x<GRID_SIZE; ++x) {
+				final char c = string.charAt((GRID_SIZE+1) * y + x);
+				if (x%BORDERED_SMALL_SIZE == 3 || y%BORDERED_SMALL_SIZE == 3) {
+					checkArgument(c == UltimatoeUtils.BORDER, "Expected border at %s %s", y, x);
+					continue;
+				}
+				final int majorIndex = x/BORDERED_SMALL_SIZE + 3 * (y/BORDERED_SMALL_SIZE);
+				final int minorIndex = x%BORDERED_SMALL_SIZE + 3 * (y%BORDERED_SMALL_SIZE);
+				if (c == UltimatoeUtils.PLAYER_1) {
+					boards[majorIndex] = (short) Tictactoe.play(boards[majorIndex], minorIndex, 0);
+				} else if (c == UltimatoeUtils.PLAYER_0) {
+					boards[majorIndex] = (short) Tictactoe.play(boards[majorIndex], minorIndex, 1);
+				} else if (c == UltimatoeUtils.PLAYABLE) {
+					possibilities |= 1 << majorIndex;
+				} else {
+					checkArgument(c == UltimatoeUtils.NON_PLAYABLE, "Unexpected char %s", c);
+				}
+			}
+		}
+		return Ultimatoe.create(boards, possibilities);
+	}
+
+	private static final int PLAYABLE_BIT = 1 << 15;
+
+	private static final int BORDERED_SMALL_SIZE = 4;
+	private static final int GRID_SIZE = 11;
+
+	public static final UltimatoeCodec INSTANCE = new UltimatoeCodec();
+}
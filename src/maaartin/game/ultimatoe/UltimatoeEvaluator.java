@@ -0,0 +1,83 @@
+package maaartin.game.ultimatoe;
+
+import javax.annotation.concurrent.Immutable;
+
+import maaartin.game.GameBoard;
+import maaartin.game.StandardPlayer;
+import maaartin.game.ai.GameEvaluator;
+
+/**
+ * A static evaluator for {@link UltimatoeBoard}, meant for {@link maaartin.game.ai.GameAlphaBetaActor}.
+ *
+ * <p>Every board gets an ownership value between -1 and +1, which is exact for the decided boards. For the undecided ones, it's
+ * derived from the rows, columns and diagonals still open to a single player, with a two-in-a-row threat counting much more.
+ * The ownership values get precomputed per {@link Tictactoe} state.
+ *
+ * <p>The meta board gets evaluated alike: Each line not blocked by a decided board of each player or by a drawn board contributes
+ * the sum of its ownership values, plus a bonus for a two-in-a-row threat. The sum gets squashed into the open interval (-1, +1).
+ */
+@Immutable public final class UltimatoeEvaluator implements GameEvaluator {
+	/** {@inheritDoc} The board must be an {@link UltimatoeBoard}. */
+	@Override public double evaluate(GameBoard<?> board) {
+		final UltimatoeBoard b = (UltimatoeBoard) board;
+		double sum = 0;
+		for (final int[] line : UltimatoeUtils.WINNING_SETS) {
+			sum += lineValue(OWNERSHIPS[b.board(line[0])], OWNERSHIPS[b.board(line[1])], OWNERSHIPS[b.board(line[2])]);
+		}
+		return MAX_VALUE * Math.tanh(SQUASH * sum);
+	}
+
+	/** Return the value of a line of the meta board given by the ownerships of its boards. */
+	private static double lineValue(float a, float b, float c) {
+		if (a==DRAWN || b==DRAWN || c==DRAWN) return 0;
+		final int nX = (a==+1 ? 1 : 0) + (b==+1 ? 1 : 0) + (c==+1 ? 1 : 0);
+		final int nO = (a==-1 ? 1 : 0) + (b==-1 ? 1 : 0) + (c==-1 ? 1 : 0);
+		if (nX>0 && nO>0) return 0;
+		return a + b + c + (nX==2 ? META_THREAT : nO==2 ? -META_THREAT : 0);
+	}
+
+	/** Return the ownership of the given board, {@link #DRAWN} for a board nobody can win. */
+	private static float ownership(int state) {
+		final StandardPlayer winner = Tictactoe.winner(state);
+		if (winner == StandardPlayer.PLAYER_X) return +1;
+		if (winner == StandardPlayer.PLAYER_O) return -1;
+		double result = 0;
+		boolean isOpen = false;
+		for (final int[] line : UltimatoeUtils.WINNING_SETS) {
+			int nX = 0;
+			int nO = 0;
+			for (final int field : line) {
+				final StandardPlayer player = Tictactoe.playerOnField(state, field);
+				if (player == StandardPlayer.PLAYER_X) ++nX;
+				if (player == StandardPlayer.PLAYER_O) ++nO;
+			}
+			if (nX>0 && nO>0) continue;
+			isOpen = true;
+			result += nX==2 ? THREAT : nX==1 ? PRESENCE : nO==2 ? -THREAT : nO==1 ? -PRESENCE : 0;
+		}
+		if (!isOpen) return DRAWN;
+		return (float) Math.max(-MAX_OWNERSHIP, Math.min(result, MAX_OWNERSHIP));
+	}
+
+	private static float[] createOwnerships() {
+		final float[] result = new float[Tictactoe.N_STATES];
+		for (int state=0; state<Tictactoe.N_STATES; ++state) result[state] = ownership(state);
+		return result;
+	}
+
+	/** The pseudo-ownership of a board nobody can win, which blocks all lines of the meta board containing it. */
+	private static final float DRAWN = 2;
+
+	/** The contributions of a line of an undecided board containing two pieces or one piece of a single player. */
+	private static final double THREAT = 0.2;
+	private static final double PRESENCE = 0.04;
+	/** The bound of the ownership of an undecided board. */
+	private static final double MAX_OWNERSHIP = 0.8;
+
+	private static final double META_THREAT = 1;
+	private static final double SQUASH = 0.15;
+	private static final double MAX_VALUE = 0.99;
+
+	/** Indexed by the state id, see {@link #ownership(int)}. */
+	private static final float[] OWNERSHIPS = createOwnerships();
+}
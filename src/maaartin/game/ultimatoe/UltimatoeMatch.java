@@ -1,14 +1,19 @@
 package maaartin.game.ultimatoe;
 
+import java.util.Map;
+
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 
 import maaartin.game.GameActor;
+import maaartin.game.ai.GameAlphaBetaActor;
 import maaartin.game.ai.GameMatch;
 import maaartin.game.ai.GameMonteCarloActor;
+import maaartin.game.ai.GameSearchMonitor;
 
 public class UltimatoeMatch extends GameMatch<Ultimatoe> {
-	private UltimatoeMatch() {
-		super(Ultimatoe.INITIAL_GAME, actors());
+	private UltimatoeMatch(ImmutableList<GameActor> actors) {
+		super(Ultimatoe.INITIAL_GAME, actors);
 	}
 
 	private static ImmutableList<GameActor> actors() {
@@ -27,8 +32,53 @@ public class UltimatoeMatch extends GameMatch<Ultimatoe> {
 		return result.build();
 	}
 
+	/** Return an alpha-beta and a Monte Carlo actor, both given the same time per move. */
+	private static ImmutableList<GameActor> alphaBetaActors() {
+		final ImmutableList.Builder<GameActor> result = ImmutableList.builder();
+		final long millisPerMove = 100;
+
+		final GameActor a0 = new GameAlphaBetaActor(new UltimatoeEvaluator());
+		a0.parameters().millisPerMove(millisPerMove);
+		a0.parameters().maxSearchDepth(Ultimatoe.N_MOVE_CODES);
+		result.add(a0);
+
+		final GameActor a1 = new GameMonteCarloActor();
+		a1.parameters().millisPerMove(millisPerMove);
+		a1.parameters().budget(Integer.MAX_VALUE);
+		result.add(a1);
+
+		return result.build();
+	}
+
+	/** Print the throughput of each actor every {@value #REPORT_INTERVAL} searches. */
+	private static void printThroughput() {
+		final Map<String, long[]> totals = Maps.newHashMap();
+		GameSearchMonitor.addListener(metrics -> {
+			synchronized (totals) {
+				// The number of searches, playouts and nanoseconds.
+				final long[] total = totals.computeIfAbsent(metrics.actor(), k -> new long[3]);
+				++total[0];
+				total[1] += metrics.playouts();
+				total[2] += metrics.elapsedNanos();
+				if (total[0] % REPORT_INTERVAL == 0) print(metrics.actor(), total);
+			}
+		});
+	}
+
+	@SuppressWarnings("boxing") private static void print(String actor, long[] total) {
+		System.out.format("%s: %.0f playouts or nodes per second%n", actor, 1e9 * total[1] / total[2]);
+	}
+
 	public static void main(String[] args) {
-		System.out.println("Running two Monte Carlos against each other (endless loop).");
-		new UltimatoeMatch().run();
+		if (args.length > 0 && args[0].equals("alphabeta")) {
+			System.out.println("Running alpha-beta against Monte Carlo (endless loop).");
+			printThroughput();
+			new UltimatoeMatch(alphaBetaActors()).run();
+		} else {
+			System.out.println("Running two Monte Carlos against each other (endless loop).");
+			new UltimatoeMatch(actors()).run();
+		}
 	}
+
+	private static final int REPORT_INTERVAL = 1000;
 }
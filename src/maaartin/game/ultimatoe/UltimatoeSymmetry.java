@@ -0,0 +1,114 @@
+package maaartin.game.ultimatoe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The 8 symmetries of the square, applied consistently to the big grid of boards and to the small grid of each board.
+ *
+ * <p>As the rules are invariant under them, all states obtained via {@link #apply(Ultimatoe)} are equivalent.
+ * {@link #canonicalizing(Ultimatoe)} chooses a unique representative, which allows caches to store equivalent
+ * states only once. The moves found for the representative can be mapped back via {@link #inverse()}.
+ */
+@Immutable public enum UltimatoeSymmetry {
+	IDENTITY(1, 0, 0, 0, 1, 0),
+	ROTATE_90(0, -1, 2, 1, 0, 0),
+	ROTATE_180(-1, 0, 2, 0, -1, 2),
+	ROTATE_270(0, 1, 0, -1, 0, 2),
+	FLIP_HORIZONTAL(-1, 0, 2, 0, 1, 0),
+	FLIP_VERTICAL(1, 0, 0, 0, -1, 2),
+	TRANSPOSE(0, 1, 0, 1, 0, 0),
+	ANTI_TRANSPOSE(0, -1, 2, -1, 0, 2),
+	;
+
+	/** Map {@code (x, y)} of a 3x3 grid to {@code (xx*x + xy*y + x0, yx*x + yy*y + y0)}. */
+	private UltimatoeSymmetry(int xx, int xy, int x0, int yx, int yy, int y0) {
+		indexMap = new int[SIZE];
+		for (int i=0; i<SIZE; ++i) {
+			final int x = i % 3;
+			final int y = i / 3;
+			indexMap[i] = (xx*x + xy*y + x0) + 3 * (yx*x + yy*y + y0);
+		}
+	}
+
+	/** Return the symmetry undoing this one. */
+	public UltimatoeSymmetry inverse() {
+		for (final UltimatoeSymmetry s : values()) {
+			if (s.indexMap[indexMap[1]] == 1 && s.indexMap[indexMap[3]] == 3) return s;
+		}
+		throw new RuntimeException("impossible");
+	}
+
+	/** Return the image of the given move code (see {@link Ultimatoe#play(int)}). */
+	public int mapMove(int move) {
+		checkArgument(0<=move && move<Ultimatoe.N_MOVE_CODES);
+		return SIZE * indexMap[move / SIZE] + indexMap[move % SIZE];
+	}
+
+	/** Return the image of the given game. */
+	public Ultimatoe apply(Ultimatoe game) {
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		final int possibilities = apply(game, boards);
+		return Ultimatoe.create(boards, possibilities);
+	}
+
+	/** Store the images of the boards of the game in the argument and return the image of its possibilities. */
+	private int apply(Ultimatoe game, short[] boards) {
+		int possibilities = 0;
+		for (int i=0; i<SIZE; ++i) {
+			boards[indexMap[i]] = (short) mapState(game.board(i));
+			if (game.isPlayable(i)) possibilities |= 1 << indexMap[i];
+		}
+		return possibilities;
+	}
+
+	/** Return the image of the given {@link Tictactoe} state id. */
+	private int mapState(int state) {
+		int result = 0;
+		for (int i=0; i<SIZE; ++i, state/=3) result += (state % 3) * POWERS_OF_THREE[indexMap[i]];
+		return result;
+	}
+
+	/**
+	 * Return the symmetry mapping the given game to its canonical representative,
+	 * which is the image having the lexicographically smallest boards (and possibilities, in case of a tie).
+	 *
+	 * <p>When there are multiple such symmetries (i.e., when the game is symmetrical), the first one gets returned.
+	 */
+	public static UltimatoeSymmetry canonicalizing(Ultimatoe game) {
+		UltimatoeSymmetry result = IDENTITY;
+		final short[] best = new short[Ultimatoe.N_BOARDS];
+		int bestPossibilities = IDENTITY.apply(game, best);
+		final short[] current = new short[Ultimatoe.N_BOARDS];
+		for (final UltimatoeSymmetry s : VALUES) {
+			if (s == IDENTITY) continue;
+			final int possibilities = s.apply(game, current);
+			final int cmp = compare(current, possibilities, best, bestPossibilities);
+			if (cmp >= 0) continue;
+			System.arraycopy(current, 0, best, 0, best.length);
+			bestPossibilities = possibilities;
+			result = s;
+		}
+		return result;
+	}
+
+	/** Return the canonical representative of the given game, see {@link #canonicalizing(Ultimatoe)}. */
+	public static Ultimatoe canonical(Ultimatoe game) {
+		return canonicalizing(game).apply(game);
+	}
+
+	private static int compare(short[] boards1, int possibilities1, short[] boards2, int possibilities2) {
+		for (int i=0; i<boards1.length; ++i) {
+			if (boards1[i] != boards2[i]) return boards1[i] < boards2[i] ? -1 : +1;
+		}
+		return Integer.compare(possibilities1, possibilities2);
+	}
+
+	private static final int SIZE = 9;
+	private static final int[] POWERS_OF_THREE = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+	private static final UltimatoeSymmetry[] VALUES = values();
+
+	/** Maps the index of a 3x3 grid to the index of its image. */
+	private final int[] indexMap;
+}
@@ -2,6 +2,8 @@ package maaartin.game.ultimatoe;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.SplittableRandom;
+
 import lombok.experimental.UtilityClass;
 
 import maaartin.game.StandardPlayer;
@@ -45,12 +47,75 @@ import maaartin.game.StandardPlayer;
 		return 3 * (y%3) + (x%3);
 	}
 
+	/**
+	 * Convert a move code as used by {@link Ultimatoe#play(int)} to its string representation.
+	 *
+	 * <p>The move code is {@code 9 * majorIndex + minorIndex}.
+	 */
+	static String moveToString(int move) {
+		checkArgument(0<=move && move<81);
+		return indexesToMoveString(move / 9, move % 9);
+	}
+
+	/** The inverse function to {@link #moveToString(int)}. */
+	static int stringToMove(String move) {
+		return 9 * stringToMajorIndex(move) + stringToMinorIndex(move);
+	}
+
 	static String coordinatesToMoveString(int x, int y) {
 		checkArgument(0<=x && x<9);
 		checkArgument(0<=y && y<9);
 		return y + "" + x;
 	}
 
+	/**
+	 * Return the Zobrist key for a piece of the player given by the ordinal
+	 * placed on the field given by the move code (see {@link #moveToString(int)}).
+	 */
+	static long pieceKey(int playerOrdinal, int move) {
+		return PIECE_KEYS[81*playerOrdinal + move];
+	}
+
+	/** Return the Zobrist key for the bitmask of playable boards, see {@link Ultimatoe#isPlayable(int)}. */
+	static long possibilitiesKey(int possibilities) {
+		return POSSIBILITIES_KEYS[possibilities];
+	}
+
+	/** Return true if the given 9-bit mask of fields contains a complete row, column or diagonal. */
+	static boolean isWin(int mask) {
+		return (WIN_TABLE[mask >> 6] & (1L << mask)) != 0;
+	}
+
+	/**
+	 * Return the index of the n-th (zero-based) one bit of the given 9-bit mask.
+	 * The mask must contain more than {@code n} one bits.
+	 */
+	static int nthSetBit(int mask, int n) {
+		return SELECT_TABLE[9*mask + n];
+	}
+
+	private static byte[] createSelectTable() {
+		final byte[] result = new byte[9 << 9];
+		for (int mask=0; mask<1<<9; ++mask) {
+			int n = 0;
+			for (int i=0; i<9; ++i) {
+				if ((mask & (1<<i)) != 0) result[9*mask + n++] = (byte) i;
+			}
+		}
+		return result;
+	}
+
+	private static long[] createWinTable() {
+		final long[] result = new long[(1<<9) / Long.SIZE];
+		for (int mask=0; mask<1<<9; ++mask) {
+			for (final int[] winningSet : WINNING_SETS) {
+				final int winningMask = 1<<winningSet[0] | 1<<winningSet[1] | 1<<winningSet[2];
+				if ((mask & winningMask) == winningMask) result[mask >> 6] |= 1L << mask;
+			}
+		}
+		return result;
+	}
+
 	static final int[][] WINNING_SETS = {
 		{0, 1, 2}, // upper row
 		{3, 4, 5}, // middle row
@@ -62,6 +127,15 @@ import maaartin.game.StandardPlayer;
 		{2, 4, 6}, // antidiagonal
 	};
 
+	/** A bitset telling for each 9-bit mask of fields if it's winning. */
+	private static final long[] WIN_TABLE = createWinTable();
+
+	/** Indexed by {@code 9*mask + n}, contains the index of the n-th one bit of the 9-bit mask. */
+	private static final byte[] SELECT_TABLE = createSelectTable();
+
+	private static final long[] PIECE_KEYS = new SplittableRandom(0x5EEDL).longs(2 * 81).toArray();
+	private static final long[] POSSIBILITIES_KEYS = new SplittableRandom(0x5EEDL + 1).longs(1 << 9).toArray();
+
 	final static char PLAYER_0 = StandardPlayer.PLAYER_O.toChar();
 	final static char PLAYER_1 = StandardPlayer.PLAYER_X.toChar();
 	final static char PLAYABLE = '·';
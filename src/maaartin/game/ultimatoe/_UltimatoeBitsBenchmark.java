@@ -0,0 +1,54 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import maaartin.game.GameRandom;
+
+/** Compare the speed of random playouts using the different representations. */
+public final class _UltimatoeBitsBenchmark {
+	public static void main(String[] args) {
+		for (int round=0; round<5; ++round) {
+			for (final Random random : new Random[] {new Random(0), new GameRandom(0)}) {
+				System.out.println(random.getClass().getSimpleName());
+				benchmark(random);
+			}
+		}
+	}
+
+	private static void benchmark(Random random) {
+		benchmark("Ultimatoe", () -> {
+			Ultimatoe game = Ultimatoe.INITIAL_GAME;
+			while (!game.isFinished()) game = game.play(random);
+			return game.turn();
+		});
+		benchmark("UltimatoeBits", () -> {
+			UltimatoeBits game = UltimatoeBits.INITIAL_GAME;
+			while (!game.isFinished()) game = game.play(random);
+			return game.turn();
+		});
+		benchmark("UltimatoeBoard", () -> {
+			BOARD.load(Ultimatoe.INITIAL_GAME);
+			while (!BOARD.isFinished()) BOARD.make(BOARD.randomMove(random));
+			return BOARD.turn();
+		});
+		benchmark("playout", () -> {
+			BOARD.load(Ultimatoe.INITIAL_GAME).playout(random);
+			return BOARD.turn();
+		});
+	}
+
+	private interface Playout {
+		int run();
+	}
+
+	private static void benchmark(String name, Playout playout) {
+		long checksum = 0;
+		final long start = System.nanoTime();
+		for (int i=0; i<N_PLAYOUTS; ++i) checksum += playout.run();
+		final double seconds = 1e-9 * (System.nanoTime() - start);
+		System.out.format("%-15s %10.0f playouts/s (checksum %d)%n", name, N_PLAYOUTS / seconds, checksum);
+	}
+
+	private static final int N_PLAYOUTS = 200_000;
+	private static final UltimatoeBoard BOARD = new UltimatoeBoard();
+}
@@ -0,0 +1,41 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class _UltimatoeBitsTest extends TestCase {
+	public void testAgainstUltimatoe() {
+		final Random random = new Random(311);
+		final int[] moves = new int[81];
+		final int[] bitsMoves = new int[81];
+		for (int n=0; n<300; ++n) {
+			Ultimatoe game = Ultimatoe.INITIAL_GAME;
+			UltimatoeBits bits = UltimatoeBits.INITIAL_GAME;
+			while (true) {
+				assertEquals(UltimatoeBits.from(game), bits);
+				assertEquals(game.asString(), bits.asString());
+				assertEquals(game.hash64(), bits.hash64());
+				assertEquals(game.turn(), bits.turn());
+				assertEquals(game.winner(), bits.winner());
+				assertEquals(game.isFinished(), bits.isFinished());
+				final int length = game.moves(moves);
+				assertEquals(length, bits.moves(bitsMoves));
+				for (int i=0; i<length; ++i) assertEquals(moves[i], bitsMoves[i]);
+				if (game.isFinished()) break;
+				final int move = moves[random.nextInt(length)];
+				game = game.play(move);
+				bits = bits.play(move);
+			}
+		}
+	}
+
+	public void testPlay_Random() {
+		final Random random = new Random(312);
+		for (int n=0; n<100; ++n) {
+			for (UltimatoeBits bits=UltimatoeBits.INITIAL_GAME; !bits.isFinished(); bits=bits.play(random)) {
+				assertTrue(bits.children().containsKey(bits.play(new Random(n))));
+			}
+		}
+	}
+}
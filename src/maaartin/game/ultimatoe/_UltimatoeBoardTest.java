@@ -0,0 +1,49 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class _UltimatoeBoardTest extends TestCase {
+	public void testMakeAndUnmake() {
+		final Random random = new Random(211);
+		final int[] moves = new int[81];
+		final int[] boardMoves = new int[81];
+		final Ultimatoe[] history = new Ultimatoe[82];
+		for (int n=0; n<100; ++n) {
+			final UltimatoeBoard board = Ultimatoe.INITIAL_GAME.newBoard();
+			int length = 0;
+			Ultimatoe game = Ultimatoe.INITIAL_GAME;
+			while (true) {
+				history[length++] = game;
+				assertEquals(game, board.toGame());
+				assertEquals(game.hash64(), board.hash64());
+				assertEquals(game.isFinished(), board.isFinished());
+				assertEquals(game.score(), board.score());
+				final int movesLength = game.moves(moves);
+				assertEquals(movesLength, board.moves(boardMoves));
+				for (int i=0; i<movesLength; ++i) assertEquals(moves[i], boardMoves[i]);
+				if (game.isFinished()) break;
+				final int move = moves[random.nextInt(movesLength)];
+				board.make(move);
+				board.unmake();
+				assertEquals(game, board.toGame());
+				board.make(move);
+				game = game.play(move);
+			}
+			while (length-- > 1) {
+				assertEquals(history[length], board.toGame());
+				board.unmake();
+			}
+			assertEquals(Ultimatoe.INITIAL_GAME, board.toGame());
+		}
+	}
+
+	public void testRandomMove() {
+		final Random random = new Random(212);
+		final UltimatoeBoard board = Ultimatoe.INITIAL_GAME.newBoard();
+		final int[] counts = new int[81];
+		for (int i=0; i<81000; ++i) ++counts[board.randomMove(random)];
+		for (final int c : counts) assertTrue(800<c && c<1200);
+	}
+}
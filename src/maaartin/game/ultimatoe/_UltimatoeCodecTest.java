@@ -0,0 +1,32 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class _UltimatoeCodecTest extends TestCase {
+	public void testRoundTrip() {
+		final UltimatoeCodec codec = UltimatoeCodec.INSTANCE;
+		assertEquals(18, codec.encodedLength());
+		final Random random = new Random(911);
+		for (int n=0; n<100; ++n) {
+			for (Ultimatoe game=Ultimatoe.INITIAL_GAME; ; game=game.play(random)) {
+				final Ultimatoe decoded = codec.decode(codec.encode(game));
+				assertEquals(game, decoded);
+				assertEquals(game.turn(), decoded.turn());
+				assertEquals(game.winner(), decoded.winner());
+				assertEquals(game, codec.parse(game.asString()));
+				if (game.isFinished()) break;
+			}
+		}
+	}
+
+	public void testParse_Malformed() {
+		try {
+			UltimatoeCodec.INSTANCE.parse(Ultimatoe.INITIAL_GAME.asString().replace('*', '#'));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
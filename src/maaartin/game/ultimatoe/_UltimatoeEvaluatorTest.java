@@ -0,0 +1,89 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import maaartin.game.ai.GameAlphaBetaActor;
+
+public final class _UltimatoeEvaluatorTest extends TestCase {
+	public void testEvaluate_Initial() {
+		assertEquals(0.0, evaluator.evaluate(Ultimatoe.INITIAL_GAME.newBoard()));
+	}
+
+	public void testEvaluate_Range() {
+		final Random random = new Random(213);
+		for (int n=0; n<100; ++n) {
+			final UltimatoeBoard board = Ultimatoe.INITIAL_GAME.newBoard();
+			while (true) {
+				board.make(board.randomMove(random));
+				if (board.isFinished()) break;
+				final double value = evaluator.evaluate(board);
+				assertTrue(-1 < value && value < +1);
+			}
+		}
+	}
+
+	public void testEvaluate_Ownership() {
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		boards[4] = (short) won(0);
+		assertTrue(evaluate(boards) > 0);
+		boards[0] = (short) won(1);
+		boards[8] = (short) won(1);
+		assertTrue(evaluate(boards) < 0);
+	}
+
+	public void testEvaluate_MetaThreat() {
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		boards[0] = (short) won(0);
+		boards[1] = (short) won(0);
+		final double threat = evaluate(boards);
+		boards[2] = (short) won(1);
+		assertTrue(threat > 0.5);
+		assertTrue(evaluate(boards) < threat - 0.25);
+	}
+
+	public void testSelectMove_MetaWin() {
+		// X has won the boards 0, 1 and 3, so that winning the board 2 or 6 wins the game, and can do so by playing 22 or 62.
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		boards[0] = (short) won(0);
+		boards[1] = (short) won(0);
+		boards[3] = (short) won(0);
+		boards[2] = (short) board(new int[] {0, 1}, new int[] {4, 8});
+		boards[6] = (short) board(new int[] {0, 1}, new int[] {4, 8});
+		// The only free fields of the board 5 send X to the board 2 or 6.
+		boards[5] = (short) board(new int[] {0, 4, 5, 7}, new int[] {1, 3, 8});
+		boards[7] = (short) board(new int[] {}, new int[] {0});
+		final Ultimatoe game = Ultimatoe.create(boards, 1 << 4);
+		final GameAlphaBetaActor actor = new GameAlphaBetaActor(evaluator);
+		actor.parameters().maxSearchDepth(4).nThreads(3);
+		// Only sending O to the board 5 wins, in three plies.
+		assertEquals("45", actor.selectMove(game));
+	}
+
+	private double evaluate(short[] boards) {
+		int possibilities = 0;
+		for (int i=0; i<Ultimatoe.N_BOARDS; ++i) {
+			if (Tictactoe.possibilities(boards[i]) != 0) possibilities |= 1 << i;
+		}
+		return evaluator.evaluate(Ultimatoe.create(boards, possibilities).newBoard());
+	}
+
+	/** Return the state of a board with the given fields occupied by X and O. */
+	private static int board(int[] xFields, int[] oFields) {
+		int result = Tictactoe.EMPTY_STATE;
+		for (final int i : xFields) result = Tictactoe.play(result, i, 0);
+		for (final int i : oFields) result = Tictactoe.play(result, i, 1);
+		return result;
+	}
+
+	/** Return the state of a board won by the given player via its upper row, containing three pieces of each player. */
+	private static int won(int playerOrdinal) {
+		int result = Tictactoe.EMPTY_STATE;
+		for (final int i : new int[] {0, 1, 2}) result = Tictactoe.play(result, i, playerOrdinal);
+		for (final int i : new int[] {3, 4, 8}) result = Tictactoe.play(result, i, 1 - playerOrdinal);
+		return result;
+	}
+
+	private final UltimatoeEvaluator evaluator = new UltimatoeEvaluator();
+}
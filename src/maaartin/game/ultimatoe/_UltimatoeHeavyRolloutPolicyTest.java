@@ -0,0 +1,45 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class _UltimatoeHeavyRolloutPolicyTest extends TestCase {
+	public void testPlayout() {
+		final Random random = new Random(215);
+		final UltimatoeBoard board = Ultimatoe.INITIAL_GAME.newBoard();
+		for (int n=0; n<100; ++n) {
+			final double score = policy.playout(board, random);
+			assertTrue(board.isFinished());
+			assertEquals(board.toGame().score(), score);
+			while (board.turn() > 0) board.unmake();
+			assertEquals(Ultimatoe.INITIAL_GAME, board.toGame());
+		}
+	}
+
+	public void testNextMove_Win() {
+		// X to move in the upper left board, where they could complete the upper row and O the middle row.
+		final Ultimatoe game = upperLeftGame(new int[] {0, 1}, new int[] {3, 4});
+		final Random random = new Random(216);
+		for (int i=0; i<10; ++i) assertEquals("02", game.moveToString(UltimatoeHeavyRolloutPolicy.nextMove(game.newBoard(), random)));
+	}
+
+	public void testNextMove_Block() {
+		// O to move in the upper left board, where X could complete the upper row.
+		final Ultimatoe game = upperLeftGame(new int[] {0, 1}, new int[] {3});
+		final Random random = new Random(217);
+		for (int i=0; i<10; ++i) assertEquals("02", game.moveToString(UltimatoeHeavyRolloutPolicy.nextMove(game.newBoard(), random)));
+	}
+
+	/** Return a game with the given fields of the upper left board occupied, which is the only playable one. */
+	private static Ultimatoe upperLeftGame(int[] xFields, int[] oFields) {
+		int state = Tictactoe.EMPTY_STATE;
+		for (final int i : xFields) state = Tictactoe.play(state, i, 0);
+		for (final int i : oFields) state = Tictactoe.play(state, i, 1);
+		final short[] boards = new short[Ultimatoe.N_BOARDS];
+		boards[0] = (short) state;
+		return Ultimatoe.create(boards, 1);
+	}
+
+	private final UltimatoeHeavyRolloutPolicy policy = new UltimatoeHeavyRolloutPolicy();
+}
@@ -0,0 +1,35 @@
+package maaartin.game.ultimatoe;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class _UltimatoeSymmetryTest extends TestCase {
+	public void testApply() {
+		final Random random = new Random(1010);
+		final int[] moves = new int[Ultimatoe.N_MOVE_CODES];
+		for (int n=0; n<30; ++n) {
+			for (Ultimatoe game=Ultimatoe.INITIAL_GAME; !game.isFinished(); game=game.play(random)) {
+				final int length = game.moves(moves);
+				final int move = moves[random.nextInt(length)];
+				for (final UltimatoeSymmetry s : UltimatoeSymmetry.values()) {
+					final Ultimatoe image = s.apply(game);
+					assertEquals(game.turn(), image.turn());
+					assertEquals(game.winner(), image.winner());
+					assertEquals(game, s.inverse().apply(image));
+					assertEquals(move, s.inverse().mapMove(s.mapMove(move)));
+					assertEquals(s.apply(game.play(move)), image.play(s.mapMove(move)));
+					assertEquals(game.canonicalHash64(), image.canonicalHash64());
+					assertEquals(UltimatoeSymmetry.canonical(game), UltimatoeSymmetry.canonical(image));
+				}
+			}
+		}
+	}
+
+	public void testCanonical_Distinct() {
+		final Ultimatoe corner = Ultimatoe.INITIAL_GAME.play("00");
+		final Ultimatoe center = Ultimatoe.INITIAL_GAME.play("44");
+		assertEquals(corner.canonicalHash64(), Ultimatoe.INITIAL_GAME.play("88").canonicalHash64());
+		assertFalse(corner.canonicalHash64() == center.canonicalHash64());
+	}
+}
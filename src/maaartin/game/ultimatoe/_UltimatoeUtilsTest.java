@@ -12,4 +12,17 @@ public final class _UltimatoeUtilsTest extends TestCase {
 			}
 		}
 	}
+
+	public void testMoveToString() {
+		for (int move=0; move<81; ++move) {
+			assertEquals(move, UltimatoeUtils.stringToMove(UltimatoeUtils.moveToString(move)));
+		}
+	}
+
+	public void testNthSetBit() {
+		for (int mask=0; mask<1<<9; ++mask) {
+			int m = mask;
+			for (int n=0; m!=0; ++n, m&=m-1) assertEquals(Integer.numberOfTrailingZeros(m), UltimatoeUtils.nthSetBit(mask, n));
+		}
+	}
 }
@@ -2,8 +2,11 @@ module ultimatoe {
 	exports maaartin.game;
 	exports maaartin.game.ultimatoe;
 	exports maaartin.game.ai;
+	exports maaartin.game.ai.book;
 
 	requires java.desktop;
+	requires java.management;
+	requires jdk.jfr;
 	requires junit;
 	requires lombok;
 	requires com.google.common;